@@ -0,0 +1,61 @@
+import bench.Workload;
+
+/**
+ * A home with the given number of devices, all four device types in turn, for the workloads of the benchmarks.<br><br>
+ * The home is the current home of the benchmark thread while it is measured, and its output goes to /dev/null,
+ * so the benchmarks measure the formatting of the output but not the disk.
+ */
+public abstract class BenchmarkHome implements Workload {
+    static final String INITIAL_TIME = "2023-01-01_00:00:00";
+    static final String NULL_OUTPUT = "/dev/null";
+
+    protected SmartHome home;
+    //names of the devices, device i is the i-th added device
+    protected String[] deviceNames;
+    private SmartHome previousHome;
+
+    @Override
+    public void setUp(int deviceCount) {
+        home = new SmartHome();
+        previousHome = SmartHome.bind(home);
+        home.openOutput(NULL_OUTPUT);
+        Main.checkStartingCommand("SetInitialTime\t" + INITIAL_TIME);
+
+        deviceNames = new String[deviceCount];
+        for (int i = 0; i < deviceCount; i++) {
+            deviceNames[i] = "Device " + i;
+            CommandDispatcher.dispatch(addCommand(i, deviceNames[i]));
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        home.closeOutput();
+        SmartHome.bind(previousHome);
+    }
+
+    /**
+     * Schedules the devices to be switched one by one, a minute apart from the current time on, wrapping around after a day.
+     */
+    protected void scheduleAll() {
+        long now = Time.getCurrentTime();
+        for (int i = 0; i < deviceNames.length; i++)
+            CommandDispatcher.dispatch("SetSwitchTime\t" + deviceNames[i] + "\t" + Time.format(now + 60L * (i % 1440 + 1)));
+    }
+
+    /**
+     * @return the Add command of the i-th device, a plug, a camera, a lamp or a color lamp in turn
+     */
+    static String addCommand(int i, String name) {
+        switch (i % 4) {
+            case 0:
+                return "Add\tSmartPlug\t" + name + "\tOn\t" + (1 + i % 10);
+            case 1:
+                return "Add\tSmartCamera\t" + name + "\t" + (1 + i % 5) + ".5\tOn";
+            case 2:
+                return "Add\tSmartLamp\t" + name + "\tOn\t" + (2000 + i % 4500) + "\t" + (i % 100);
+            default:
+                return "Add\tSmartColorLamp\t" + name + "\tOff\t0x" + Integer.toHexString(0x100000 + i % 0xEFFFFF).toUpperCase() + "\t" + (i % 100);
+        }
+    }
+}
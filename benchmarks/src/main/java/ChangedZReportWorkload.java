@@ -0,0 +1,8 @@
+/**
+ * Renders the ZReport of the home after every device is changed, so that no cached line of a device can be used.
+ */
+public class ChangedZReportWorkload extends ZReportWorkload {
+    public ChangedZReportWorkload() {
+        super(true);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Looks up the devices of the home by name one after another, as every command on a device does.
+ */
+public class DeviceLookupWorkload extends BenchmarkHome {
+    private int next = 0;
+
+    @Override
+    public Object run() {
+        String deviceName = deviceNames[next];
+        if (++next == deviceNames.length)
+            next = 0;
+
+        try {
+            return SmartDevice.getDevice(deviceName);
+        } catch (DeviceNotFoundException | ErroneousCommandException | DeviceTypeException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Looks up names that are not in the home, the path of a command on a misspelled device, which ends with a DeviceNotFoundException.
+ */
+public class MissingDeviceLookupWorkload extends BenchmarkHome {
+    private String[] missingNames;
+    private int next = 0;
+
+    @Override
+    public void setUp(int deviceCount) {
+        super.setUp(deviceCount);
+
+        missingNames = new String[Math.max(1, Math.min(deviceCount, 1024))];
+        for (int i = 0; i < missingNames.length; i++)
+            missingNames[i] = "Missing " + i;
+    }
+
+    @Override
+    public Object run() {
+        String deviceName = missingNames[next];
+        if (++next == missingNames.length)
+            next = 0;
+
+        try {
+            return SmartDevice.getDevice(deviceName);
+        } catch (DeviceNotFoundException e) {
+            return e;
+        } catch (ErroneousCommandException | DeviceTypeException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import bench.Workload;
+
+/**
+ * Runs a whole command script on a new home, from SetInitialTime to the last ZReport, as a run of the program does with a command file.<br><br>
+ * The script is made by ScriptGenerator once with a fixed seed and kept in memory, so the operation measures the commands and their output, not reading the file.
+ * It has a device for every 50 commands, a week of time, and 5% erroneous commands like a real command file.
+ */
+public class ScriptWorkload implements Workload {
+    private static final long SEED = 42;
+    private static final double ERROR_RATIO = 0.05;
+
+    private String[] lines;
+
+    @Override
+    public void setUp(int commandCount) {
+        int deviceCount = Math.max(4, commandCount / 50);
+        ScriptGenerator generator = new ScriptGenerator(deviceCount, Math.max(2, commandCount), ERROR_RATIO, ScriptGenerator.DEFAULT_TIME_SPAN, SEED);
+
+        lines = new String[Math.max(2, commandCount)];
+        for (int i = 0; i < lines.length; i++)
+            lines[i] = generator.nextLine();
+
+        lines[lines.length - 1] = "ZReport";
+    }
+
+    @Override
+    public Object run() {
+        return new SmartHome().run(new ArrayLineSource(lines), BenchmarkHome.NULL_OUTPUT);
+    }
+
+    @Override
+    public void tearDown() {
+        lines = null;
+    }
+
+    /**
+     * The lines of the script in memory.
+     */
+    private static class ArrayLineSource implements LineSource {
+        private final String[] lines;
+        private int next = 0;
+
+        private ArrayLineSource(String[] lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public String nextLine() {
+            return next < lines.length ? lines[next++] : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * A single SkipMinutes over a whole day, while every device of the home has a pending switch within that day.<br><br>
+ * The switches are used up by the operation, so the home is built again before every operation.
+ */
+public class SkipMinutesWorkload extends BenchmarkHome {
+    @Override
+    public void setUp(int deviceCount) {
+        super.setUp(deviceCount);
+        scheduleAll();
+    }
+
+    @Override
+    public Object run() {
+        CommandDispatcher.dispatch("SkipMinutes\t1440");
+        return Time.getCurrentTime();
+    }
+}
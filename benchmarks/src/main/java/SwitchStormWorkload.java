@@ -0,0 +1,31 @@
+/**
+ * A storm of SetSwitchTime commands followed by as many Nop commands, which switch the scheduled devices one by one.<br><br>
+ * Every storm schedules the next devices of the home, a minute apart, so the scheduler keeps all the other devices while the storm goes through it.
+ */
+public class SwitchStormWorkload extends BenchmarkHome {
+    //the number of devices that are scheduled and switched in a storm
+    static final int STORM_SIZE = 64;
+
+    private final StringBuilder line = new StringBuilder(64);
+    private int next = 0;
+
+    @Override
+    public Object run() {
+        int stormSize = Math.min(STORM_SIZE, deviceNames.length);
+        long now = Time.getCurrentTime();
+
+        for (int i = 0; i < stormSize; i++) {
+            line.setLength(0);
+            line.append("SetSwitchTime\t").append(deviceNames[next]).append('\t').append(Time.format(now + 60L * (i + 1)));
+            CommandDispatcher.dispatch(line.toString());
+
+            if (++next == deviceNames.length)
+                next = 0;
+        }
+
+        for (int i = 0; i < stormSize; i++)
+            CommandDispatcher.dispatch("Nop");
+
+        return Time.getCurrentTime();
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Renders the ZReport of the home, half of whose devices have a pending switch.<br><br>
+ * If every device is changed before the report, its line is rendered again, otherwise the cached line of the device is used.
+ */
+public class ZReportWorkload extends BenchmarkHome {
+    private final boolean everyDeviceChanged;
+
+    public ZReportWorkload() {
+        this(false);
+    }
+
+    protected ZReportWorkload(boolean everyDeviceChanged) {
+        this.everyDeviceChanged = everyDeviceChanged;
+    }
+
+    @Override
+    public void setUp(int deviceCount) {
+        super.setUp(deviceCount);
+
+        long now = Time.getCurrentTime();
+        for (int i = 0; i < deviceNames.length; i += 2)
+            CommandDispatcher.dispatch("SetSwitchTime\t" + deviceNames[i] + "\t" + Time.format(now + 60L * (i % 1440 + 1)));
+    }
+
+    @Override
+    public Object run() {
+        if (everyDeviceChanged) {
+            for (SmartDevice smartDevice : home.smartDevices)
+                smartDevice.markDirty();
+        }
+
+        SmartDevice.displayZReport();
+        return home;
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking a device up by name, in homes with 10, 1k and 100k devices, for names in the home and names that are not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class DeviceLookupBenchmark {
+
+    @State(Scope.Thread)
+    public static class Existing {
+        @Param({"10", "1000", "100000"})
+        public int deviceCount;
+
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            workload = Workload.create("DeviceLookupWorkload");
+            workload.setUp(deviceCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workload.tearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Missing {
+        @Param({"10", "1000", "100000"})
+        public int deviceCount;
+
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            workload = Workload.create("MissingDeviceLookupWorkload");
+            workload.setUp(deviceCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workload.tearDown();
+        }
+    }
+
+    @Benchmark
+    public Object existingDevice(Existing state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public Object missingDevice(Missing state) {
+        return state.workload.run();
+    }
+}
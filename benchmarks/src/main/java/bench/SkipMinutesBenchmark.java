@@ -0,0 +1,50 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A SkipMinutes over a whole day that fires the pending switches of every device, in homes with 1k, 10k and 100k devices.<br><br>
+ * The switches are used up by a single SkipMinutes, so every operation is measured once on a home that is built again for it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class SkipMinutesBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int deviceCount;
+
+    private Workload workload;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        workload = Workload.create("SkipMinutesWorkload");
+        workload.setUp(deviceCount);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public Object skipMinutesAcrossPendingSwitches() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+/**
+ * An operation of the simulation that is measured by a benchmark.<br><br>
+ * JMH needs the benchmarks to be in a named package, which cannot refer to the classes of the simulation in the default package.
+ * So the operations are written in the default package against the simulation itself, implementing this interface,
+ * and the benchmarks load them by name once in their setup and only call this interface while measuring.
+ */
+public interface Workload {
+    /**
+     * Builds a fresh home for the workload and makes it the current home of the calling thread.
+     *
+     * @param size the size of the workload, e.g. the number of devices or commands
+     */
+    void setUp(int size);
+
+    /**
+     * Runs the measured operation once.
+     *
+     * @return a result of the operation, consumed by JMH so that the operation is not optimized away
+     */
+    Object run();
+
+    /**
+     * Closes the output of the home and restores the previous current home of the thread.
+     */
+    void tearDown();
+
+    /**
+     * Creates the workload with the given class name, which is in the default package.
+     *
+     * @param className the simple name of the workload class
+     * @return a new instance of the workload
+     */
+    static Workload create(String className) {
+        try {
+            return (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create workload " + className, e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering the ZReport of homes with 10, 1k and 100k devices, with the cached lines of unchanged devices and after every device is changed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ZReportBenchmark {
+
+    @State(Scope.Thread)
+    public static class Unchanged {
+        @Param({"10", "1000", "100000"})
+        public int deviceCount;
+
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            workload = Workload.create("ZReportWorkload");
+            workload.setUp(deviceCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workload.tearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Changed {
+        @Param({"10", "1000", "100000"})
+        public int deviceCount;
+
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            workload = Workload.create("ChangedZReportWorkload");
+            workload.setUp(deviceCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workload.tearDown();
+        }
+    }
+
+    @Benchmark
+    public Object unchangedDevices(Unchanged state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public Object changedDevices(Changed state) {
+        return state.workload.run();
+    }
+}
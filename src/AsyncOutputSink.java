@@ -0,0 +1,326 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * An OutputSink whose file is written by a writer thread of its own, so that the commands do not wait for the disk.<br><br>
+ * The content is encoded into a block of bytes (with the default charset, as an OutputStreamWriter does), and a full block is handed to the writer thread, which writes the blocks to the file in order.
+ * There is a fixed ring of blocks (two by default, so that one is filled while the other is written): if the writer thread falls behind and all the blocks are handed over,
+ * a write waits until a block is written, so the memory used for the output is bounded.<br><br>
+ * Flushing waits until the writer thread has written everything before it, and closing waits until everything is written and the file is closed,
+ * so no content is lost and the file looks the same as the file of a synchronous sink.
+ */
+public class AsyncOutputSink extends OutputSink {
+    /**
+     * Content handed to the writer thread, with what the writer thread does before and after writing it.
+     */
+    private static class Block {
+        private final ByteBuffer bytes;
+        //the file is created from zero before the content of the block is written
+        private boolean truncate = false;
+        //the file is closed and the writer thread stops after the content of the block is written
+        private boolean last = false;
+        //counted down once the content of the block is written
+        private CountDownLatch written = null;
+
+        private Block(int size) {
+            this.bytes = ByteBuffer.allocate(size);
+        }
+
+        private void clear() {
+            bytes.clear();
+            truncate = false;
+            last = false;
+            written = null;
+        }
+    }
+
+    private final BlockingQueue<Block> freeBlocks;
+    private final BlockingQueue<Block> fullBlocks;
+    private final int blockCount;
+    private final int blockSize;
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+    //a new line is put into the block as a single byte, instead of going through the encoder, if the charset encodes it that way
+    private static final boolean SINGLE_BYTE_NEW_LINE = Arrays.equals("\n".getBytes(CHARSET), new byte[]{'\n'});
+
+    private final CharsetEncoder encoder = CHARSET.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    //the characters of the content are copied here in pieces, so that the encoder works on an array
+    private final char[] chars = new char[1024];
+    //a high surrogate at the end of the last content, encoded together with the start of the next content as an OutputStreamWriter does
+    private boolean haveLeftoverChar = false;
+    private char leftoverChar;
+
+    private Block current = null;
+    private Thread writerThread = null;
+
+    //used only by the writer thread
+    private OutputStream file = null;
+
+    /**
+     * Creates an asynchronous sink for the file at the given path. The file itself is opened with the first write.
+     *
+     * @param path        Path for the file content is going to be written.
+     * @param bufferSize  Size of a block in bytes.
+     * @param blockCount  Number of blocks, at least 2.
+     * @param flushPolicy When the blocks are handed to the writer thread before they are full, and when they are written.
+     */
+    public AsyncOutputSink(String path, int bufferSize, int blockCount, FlushPolicy flushPolicy) {
+        super(path, bufferSize, flushPolicy);
+        this.blockCount = Math.max(2, blockCount);
+        this.blockSize = Math.max(16, bufferSize);
+        this.freeBlocks = new ArrayBlockingQueue<>(this.blockCount);
+        this.fullBlocks = new ArrayBlockingQueue<>(this.blockCount);
+    }
+
+    /**
+     * Copies the given content into the current block, the file is written later by the writer thread.<br><br>
+     * If append is false, the file is truncated before the content is written, just like creating the file from zero.
+     *
+     * @param content Content that is going to be written to file.
+     * @param append  True to append to the file, false to overwrite it.
+     * @param newLine True to add a new line after the given content.
+     */
+    @Override
+    public synchronized void write(String content, boolean append, boolean newLine) {
+        if (writerThread == null)
+            start();
+
+        if (!append) {
+            endEncoding();
+            if (current.bytes.position() > 0)
+                handOver(null, false);
+            current.truncate = true;
+        }
+
+        append(content);
+        if (newLine)
+            appendNewLine();
+
+        if (flushPolicy == FlushPolicy.EVERY_LINE)
+            handOver(null, false);
+    }
+
+    /**
+     * Marks the end of a ZReport, hands the current block to the writer thread unless the policy is to flush only at exit.
+     */
+    @Override
+    public synchronized void reportBoundary() {
+        if (writerThread != null && flushPolicy != FlushPolicy.EXIT && current.bytes.position() > 0)
+            handOver(null, false);
+    }
+
+    /**
+     * Hands the current block to the writer thread and waits until all the content is written to the file.
+     */
+    @Override
+    public synchronized void flush() {
+        if (writerThread == null)
+            return;
+
+        CountDownLatch written = new CountDownLatch(1);
+        handOver(written, false);
+        awaitUninterruptibly(written);
+    }
+
+    /**
+     * Waits until all the content is written, closes the file and stops the writer thread. A later write opens the file again in append mode.
+     */
+    @Override
+    public synchronized void close() {
+        if (writerThread == null)
+            return;
+
+        endEncoding();
+
+        CountDownLatch written = new CountDownLatch(1);
+        handOver(written, true);
+        awaitUninterruptibly(written);
+
+        writerThread = null;
+    }
+
+    /**
+     * Fills the ring with empty blocks and starts the writer thread.
+     */
+    private void start() {
+        freeBlocks.clear();
+        fullBlocks.clear();
+        for (int i = 1; i < blockCount; i++)
+            freeBlocks.add(new Block(blockSize));
+        current = new Block(blockSize);
+        encoder.reset();
+
+        writerThread = new Thread(this::writeBlocks, "output-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Encodes the content into the current block, handing over the full blocks.
+     */
+    private void append(String content) {
+        int length = content.length();
+
+        for (int offset = 0; offset < length; ) {
+            int start = 0;
+            if (haveLeftoverChar) {
+                chars[start++] = leftoverChar;
+                haveLeftoverChar = false;
+            }
+
+            int count = Math.min(chars.length - start, length - offset);
+            content.getChars(offset, offset + count, chars, start);
+            offset += count;
+
+            CharBuffer in = CharBuffer.wrap(chars, 0, start + count);
+            while (encoder.encode(in, current.bytes, false).isOverflow())
+                handOver(null, false);
+
+            // a high surrogate is kept until the next character is known
+            if (in.hasRemaining()) {
+                leftoverChar = in.get();
+                haveLeftoverChar = true;
+            }
+        }
+    }
+
+    /**
+     * Ends the encoding of the content of the file before it is closed or truncated, a leftover high surrogate is written as a replacement.
+     */
+    private void endEncoding() {
+        CharBuffer in = CharBuffer.wrap(chars, 0, 0);
+        if (haveLeftoverChar) {
+            chars[0] = leftoverChar;
+            in = CharBuffer.wrap(chars, 0, 1);
+            haveLeftoverChar = false;
+        }
+
+        while (encoder.encode(in, current.bytes, true).isOverflow())
+            handOver(null, false);
+        while (encoder.flush(current.bytes).isOverflow())
+            handOver(null, false);
+
+        encoder.reset();
+    }
+
+    private void appendNewLine() {
+        if (!SINGLE_BYTE_NEW_LINE || haveLeftoverChar) {
+            append("\n");
+            return;
+        }
+
+        if (!current.bytes.hasRemaining())
+            handOver(null, false);
+        current.bytes.put((byte) '\n');
+    }
+
+    /**
+     * Hands the current block to the writer thread and takes a free block, waiting for one if the writer thread has not written any yet.
+     */
+    private void handOver(CountDownLatch written, boolean last) {
+        current.written = written;
+        current.last = last;
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                fullBlocks.put(current);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (true) {
+            try {
+                current = freeBlocks.take();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        // the content is not lost on an interrupt, the interrupt is kept for the caller
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * The loop of the writer thread, writes the blocks in the order they are handed over until the last one.
+     */
+    private void writeBlocks() {
+        while (true) {
+            Block block;
+            try {
+                block = fullBlocks.take();
+            } catch (InterruptedException e) {
+                // the writer thread stops only with the last block, so that no content is lost
+                continue;
+            }
+
+            try {
+                if (block.truncate || file == null)
+                    openFile(!block.truncate);
+
+                file.write(block.bytes.array(), 0, block.bytes.position());
+
+                if (block.last)
+                    closeFile();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            CountDownLatch written = block.written;
+            boolean last = block.last;
+            block.clear();
+            freeBlocks.add(block);
+
+            if (written != null)
+                written.countDown();
+            if (last)
+                return;
+        }
+    }
+
+    private void openFile(boolean append) throws IOException {
+        closeFile();
+        file = new FileOutputStream(path, append);
+    }
+
+    private void closeFile() throws IOException {
+        if (file == null)
+            return;
+
+        try {
+            file.close();
+        } finally {
+            file = null;
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
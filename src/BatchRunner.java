@@ -0,0 +1,130 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Processes many command files in a single JVM, concurrently on a bounded number of threads (virtual threads on Java 21 and later, see HomeRunner).<br><br>
+ * Every command file is run on a SmartHome of its own, so the output of each file is the same as running Main for it alone.
+ * A file that fails (e.g. cannot be read) does not stop the others.<br><br>
+ * Usage:<br>
+ * java BatchRunner inputDirectory outputDirectory - every file of the input directory is written to the output directory with the same name<br>
+ * java BatchRunner manifestFile - every line of the manifest is a tab separated input path and output path<br><br>
+ * The number of threads can be changed with -Dbatch.threads, it is the number of available processors by default.
+ */
+public class BatchRunner {
+
+    public static int threadCount = Integer.getInteger("batch.threads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * A command file and the output file it is going to be written to.
+     */
+    public static class Job {
+        private final String inputPath;
+        private final String outputPath;
+
+        public Job(String inputPath, String outputPath) {
+            this.inputPath = inputPath;
+            this.outputPath = outputPath;
+        }
+
+        public String getInputPath() {
+            return inputPath;
+        }
+
+        public String getOutputPath() {
+            return outputPath;
+        }
+    }
+
+    /**
+     * Runs all the given jobs with a HomeRunner and waits until all of them are finished.
+     *
+     * @param jobs    the command files and their output files
+     * @param threads the maximum number of command files that are processed at the same time
+     * @return the number of jobs that have failed
+     */
+    public static int run(List<Job> jobs, int threads) {
+        HomeRunner runner = new HomeRunner(threads);
+
+        for (Job job : jobs)
+            runner.submit(job.getInputPath(), job.getOutputPath());
+
+        // waits until all the jobs are finished
+        runner.close();
+        return (int) runner.getFailedHomes();
+    }
+
+    /**
+     * Creates a job for every file of the input directory, writing to the file with the same name in the output directory.
+     *
+     * @param inputDirectory  the directory of the command files
+     * @param outputDirectory the directory of the output files, created if it does not exist
+     * @return the jobs in the order of the file names
+     */
+    public static List<Job> listDirectory(String inputDirectory, String outputDirectory) {
+        List<Job> jobs = new ArrayList<>();
+        File[] files = new File(inputDirectory).listFiles(File::isFile);
+
+        if (files == null)
+            return jobs;
+
+        new File(outputDirectory).mkdirs();
+        Arrays.sort(files);
+        for (File file : files)
+            jobs.add(new Job(file.getPath(), new File(outputDirectory, file.getName()).getPath()));
+
+        return jobs;
+    }
+
+    /**
+     * Reads the jobs from a manifest file, whose every line is a tab separated input path and output path.<br><br>
+     * Lines that are not in that format are reported and skipped.
+     *
+     * @param manifestPath the path of the manifest file
+     * @return the jobs in the order of the manifest, null if the manifest cannot be read
+     */
+    public static List<Job> readManifest(String manifestPath) {
+        LineSource lines = FileInput.openFile(manifestPath, true, true);
+        if (lines == null)
+            return null;
+
+        List<Job> jobs = new ArrayList<>();
+        try {
+            String line;
+            while ((line = lines.nextLine()) != null) {
+                String[] paths = line.split("\t");
+
+                if (paths.length != 2) {
+                    System.err.println("ERROR: Manifest line is not in the correct format: " + line);
+                    continue;
+                }
+
+                jobs.add(new Job(paths[0], paths[1]));
+            }
+        } finally {
+            lines.close();
+        }
+
+        return jobs;
+    }
+
+    public static void main(String[] args) {
+        List<Job> jobs;
+
+        if (args.length == 2 && new File(args[0]).isDirectory())
+            jobs = listDirectory(args[0], args[1]);
+        else if (args.length == 1)
+            jobs = readManifest(args[0]);
+        else {
+            System.err.println("Usage: java BatchRunner <inputDirectory> <outputDirectory> | java BatchRunner <manifestFile>");
+            return;
+        }
+
+        if (jobs == null)
+            return;
+
+        int failed = run(jobs, threadCount);
+        System.out.println(jobs.size() + " command files are processed, " + failed + " of them failed.");
+    }
+}
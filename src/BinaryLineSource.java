@@ -0,0 +1,239 @@
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reads a command file that is compiled by the CommandCompiler.<br><br>
+ * Every command line is rebuilt from its arguments, since it is echoed to the output, and it is split into the CommandTokens of the current home
+ * together with the already parsed values of its arguments: ints, times and color codes are not parsed again,
+ * and device names are the interned strings of the string table. CommandDispatcher then executes the command without splitting the line again.
+ * So the commands go through the same handlers as the commands of a text file, and the output is the same.
+ */
+public class BinaryLineSource implements LineSource {
+    private final InputStream in;
+
+    //the file is read in blocks and decoded from this buffer, instead of asking a stream for every single byte
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position = 0;
+    private int limit = 0;
+
+    private final ArrayList<String> stringTable = new ArrayList<>();
+    private final StringBuilder line = new StringBuilder(128);
+
+    //parsed values of the arguments of the current command, attached to the tokens once the line is split
+    private byte[] kinds = new byte[8];
+    private long[] values = new long[8];
+    private String[] strings = new String[8];
+
+    /**
+     * Opens the compiled command file at the given path.
+     *
+     * @param path path of the compiled command file
+     * @throws IOException if the file cannot be read or is not a compiled command file
+     */
+    public BinaryLineSource(String path) throws IOException {
+        in = new FileInputStream(path);
+
+        if (readInt() != CommandCompiler.MAGIC || readInt() != CommandCompiler.VERSION) {
+            in.close();
+            throw new IOException("Not a compiled command file: " + path);
+        }
+    }
+
+    /**
+     * @param path path of a file
+     * @return true if the file starts like a compiled command file
+     */
+    public static boolean isCompiled(String path) {
+        try (DataInputStream file = new DataInputStream(new FileInputStream(path))) {
+            return file.readInt() == CommandCompiler.MAGIC && file.readInt() == CommandCompiler.VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the next command, rebuilds its line and splits it into the CommandTokens of the current home with its parsed arguments.
+     *
+     * @return the command line, null if there are no more commands
+     * @throws UncheckedIOException if the file cannot be read anymore or ends in the middle of a command
+     */
+    @Override
+    public String nextLine() {
+        try {
+            if (position == limit && !fill())
+                return null;
+
+            int opcode = buffer[position++] & 0xFF;
+
+            line.setLength(0);
+            int argument = 0;
+
+            if (opcode != 0) {
+                line.append(CommandCompiler.KEYWORDS[opcode]);
+                setParsed(argument++, CommandTokens.NOT_PARSED, 0, CommandCompiler.KEYWORDS[opcode]);
+            }
+
+            int argumentCount = readVarInt();
+            for (int i = 0; i < argumentCount; i++) {
+                if (argument > 0)
+                    line.append('\t');
+
+                readArgument(argument++);
+            }
+
+            String commandLine = line.toString();
+            CommandTokens args = SmartHome.current().args;
+            args.reset(commandLine);
+
+            // trailing empty arguments are dropped by the split, so the parsed values are attached to the arguments that are left
+            for (int i = 0; i < args.count(); i++) {
+                if (kinds[i] != CommandTokens.NOT_PARSED)
+                    args.attachValue(i, kinds[i], values[i]);
+                if (strings[i] != null)
+                    args.attachString(i, strings[i]);
+            }
+
+            return commandLine;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads an argument, appends its characters to the line and keeps its parsed value.
+     */
+    private void readArgument(int argument) throws IOException {
+        int tag = readByte();
+
+        switch (tag) {
+            case CommandCompiler.TAG_INT: {
+                int encoded = readVarInt();
+                int value = (encoded >>> 1) ^ -(encoded & 1);
+                line.append(value);
+                setParsed(argument, CommandTokens.PARSED_INT, value, null);
+                break;
+            }
+            case CommandCompiler.TAG_TIME: {
+                long time = readLong();
+                line.append(Time.format(time));
+                setParsed(argument, CommandTokens.PARSED_TIME, time, null);
+                break;
+            }
+            case CommandCompiler.TAG_HEX_LOWER:
+            case CommandCompiler.TAG_HEX_UPPER: {
+                int value = readVarInt();
+                String digits = CommandCompiler.hexDigits(value, readByte());
+                line.append("0x").append(tag == CommandCompiler.TAG_HEX_UPPER ? digits.toUpperCase() : digits);
+                setParsed(argument, CommandTokens.PARSED_HEX, value, null);
+                break;
+            }
+            case CommandCompiler.TAG_DOUBLE: {
+                String string = readString();
+                line.append(string);
+                setParsed(argument, CommandTokens.PARSED_DOUBLE, readLong(), null);
+                break;
+            }
+            case CommandCompiler.TAG_STRING: {
+                String string = readString();
+                line.append(string);
+                setParsed(argument, CommandTokens.NOT_PARSED, 0, string);
+                break;
+            }
+            default:
+                throw new IOException("Unknown argument tag: " + tag);
+        }
+    }
+
+    /**
+     * Reads a string id, and the string itself if it is used for the first time.
+     */
+    private String readString() throws IOException {
+        int id = readVarInt();
+
+        if (id == stringTable.size()) {
+            byte[] bytes = new byte[readVarInt()];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = (byte) readByte();
+
+            stringTable.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        return stringTable.get(id);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    private long readLong() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    private int readInt() throws IOException {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    /**
+     * @return the next byte of the file as an unsigned value
+     * @throws EOFException if the file ends, which is only expected between two commands
+     */
+    private int readByte() throws IOException {
+        if (position == limit && !fill())
+            throw new EOFException("Compiled command file ends in the middle of a command");
+
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Reads the next block of the file into the buffer.
+     *
+     * @return false if the file has ended
+     */
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0)
+            return false;
+
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private void setParsed(int argument, byte kind, long value, String string) {
+        if (argument == kinds.length) {
+            kinds = Arrays.copyOf(kinds, argument * 2);
+            values = Arrays.copyOf(values, argument * 2);
+            strings = Arrays.copyOf(strings, argument * 2);
+        }
+
+        kinds[argument] = kind;
+        values[argument] = value;
+        strings[argument] = string;
+    }
+}
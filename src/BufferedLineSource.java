@@ -0,0 +1,57 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * A LineSource that reads the file through a BufferedReader, trimming and discarding empty lines on the fly.
+ */
+public class BufferedLineSource implements LineSource {
+    private final BufferedReader reader;
+    private final boolean discardEmptyLines;
+    private final boolean trim;
+
+    /**
+     * Opens the file at the given path for reading.
+     *
+     * @param path              Path to the file that is going to be read.
+     * @param discardEmptyLines If true, discards empty lines with respect to trim; else, it takes all the lines from the file.
+     * @param trim              Trim status; if true, trims each line; else, it leaves each line as-is.
+     * @throws IOException if there is no such a file or it cannot be read
+     */
+    public BufferedLineSource(String path, boolean discardEmptyLines, boolean trim) throws IOException {
+        this.reader = Files.newBufferedReader(Paths.get(path));
+        this.discardEmptyLines = discardEmptyLines;
+        this.trim = trim;
+    }
+
+    /**
+     * @return the next line of the file (trimmed and non-empty if requested), null if the end of file is reached.
+     * @throws UncheckedIOException if the file cannot be read anymore, so that a read error is not taken for the end of the file
+     */
+    @Override
+    public String nextLine() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (discardEmptyLines && line.trim().equals(""))
+                    continue;
+
+                return trim ? line.trim() : line;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
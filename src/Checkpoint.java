@@ -0,0 +1,235 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/**
+ * A snapshot of the whole state of a SmartHome, in a compact binary format, from which the simulation can be resumed.<br><br>
+ * It holds the clock, the orders of the scheduler and every device in the order of the scheduler with its switch time and its own state,
+ * together with the position in the commands (number of commands, length of the command log and of the output file) the snapshot belongs to.<br><br>
+ * It also holds the input file (its path, size and modification time) and the output file it is captured for,
+ * so that a checkpoint that is left over from the commands of another file is not restored.<br><br>
+ * A checkpoint is captured into a byte array on the command thread, so that it is consistent, and written to disk by the CommandJournal later.
+ */
+public class Checkpoint {
+    //"SHCP", to recognize checkpoint files
+    private static final int MAGIC = 0x53484350;
+    private static final int VERSION = 3;
+
+    private final String inputPath;
+    private final long inputSize;
+    private final long inputModified;
+    private final String outputPath;
+    private final long commandCount;
+    private final long logLength;
+    private final long outputLength;
+    private final String lastLine;
+
+    //the rest of the checkpoint, the state of the home
+    private final DataInputStream state;
+
+    private Checkpoint(DataInputStream in) throws IOException {
+        this.inputPath = readString(in);
+        this.inputSize = in.readLong();
+        this.inputModified = in.readLong();
+        this.outputPath = readString(in);
+        this.commandCount = in.readLong();
+        this.logLength = in.readLong();
+        this.outputLength = in.readLong();
+        this.lastLine = readString(in);
+        this.state = in;
+    }
+
+    /**
+     * Captures the state of the given home.
+     *
+     * @param home          the home whose state is captured
+     * @param inputPath     the absolute path of the input file of the commands
+     * @param inputSize     the size of the input file in bytes
+     * @param inputModified the modification time of the input file in milliseconds
+     * @param commandCount  the number of commands that are processed until now
+     * @param logLength     the length of the command log in bytes after those commands
+     * @param outputLength  the length of the output file in bytes after those commands
+     * @param lastLine      the last command that is processed
+     * @return the checkpoint as bytes
+     * @throws IOException if the state cannot be written
+     */
+    public static byte[] capture(SmartHome home, String inputPath, long inputSize, long inputModified,
+                                 long commandCount, long logLength, long outputLength, String lastLine) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + 64 * home.smartDevices.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, inputPath);
+        out.writeLong(inputSize);
+        out.writeLong(inputModified);
+        writeString(out, absolutePath(home.outputPath));
+        out.writeLong(commandCount);
+        out.writeLong(logLength);
+        out.writeLong(outputLength);
+        writeString(out, lastLine);
+
+        out.writeLong(home.initialTime);
+        out.writeLong(home.currentTime);
+        out.writeLong(home.smartDevices.getFrontOrder());
+        out.writeLong(home.smartDevices.getBackOrder());
+
+        out.writeInt(home.smartDevices.size());
+        for (SmartDevice smartDevice : home.smartDevices) {
+            writeString(out, smartDevice.deviceType);
+            writeString(out, smartDevice.getDeviceName());
+            out.writeLong(smartDevice.getSwitchTime());
+            out.writeLong(smartDevice.getScheduleOrder());
+            smartDevice.writeState(out);
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the files and the position in the commands the given checkpoint belongs to, the state of the home is restored with restore afterwards.
+     *
+     * @param bytes the checkpoint as bytes
+     * @return the checkpoint
+     * @throws IOException if the checkpoint is not valid
+     */
+    public static Checkpoint read(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("Not a checkpoint of this version");
+
+        return new Checkpoint(in);
+    }
+
+    /**
+     * Checks if the checkpoint is captured for the commands of the given input file and the given output file,
+     * and the output file still has all the output that was written until the checkpoint.
+     *
+     * @param inputPath     the absolute path of the input file
+     * @param inputSize     the size of the input file in bytes
+     * @param inputModified the modification time of the input file in milliseconds
+     * @param outputPath    the path of the output file
+     * @return true if the checkpoint can be restored for these files
+     */
+    public boolean belongsTo(String inputPath, long inputSize, long inputModified, String outputPath) {
+        if (!this.inputPath.equals(inputPath) || this.inputSize != inputSize || this.inputModified != inputModified)
+            return false;
+
+        File output = new File(outputPath);
+        return this.outputPath.equals(absolutePath(outputPath)) && output.isFile() && output.length() >= outputLength;
+    }
+
+    /**
+     * Restores the state in the checkpoint to the given home, which must not have any devices yet.
+     *
+     * @param home the home the state is restored to
+     * @throws IOException if the checkpoint is not valid
+     */
+    public void restore(SmartHome home) throws IOException {
+        DataInputStream in = state;
+
+        home.initialTime = in.readLong();
+        home.currentTime = in.readLong();
+        home.smartDevices.restoreOrders(in.readLong(), in.readLong());
+
+        int deviceCount = in.readInt();
+        for (int i = 0; i < deviceCount; i++) {
+            SmartDevice smartDevice = createDevice(readString(in), readString(in));
+            long switchTime = in.readLong();
+            long scheduleOrder = in.readLong();
+
+            smartDevice.readState(in);
+            home.smartDevices.restore(smartDevice, switchTime, scheduleOrder);
+        }
+    }
+
+    /**
+     * @return the number of commands that were processed when the checkpoint was captured
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * @return the length of the command log in bytes when the checkpoint was captured
+     */
+    public long getLogLength() {
+        return logLength;
+    }
+
+    /**
+     * @return the length of the output file in bytes when the checkpoint was captured
+     */
+    public long getOutputLength() {
+        return outputLength;
+    }
+
+    /**
+     * @return the last command that was processed when the checkpoint was captured
+     */
+    public String getLastLine() {
+        return lastLine;
+    }
+
+    /**
+     * @return the absolute and normalized form of the given path, which is what is stored in a checkpoint
+     */
+    static String absolutePath(String path) {
+        return Paths.get(path).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 bytes, so that it is not limited to 64 KB as with writeUTF.
+     *
+     * @param out    the stream of the checkpoint
+     * @param string the string to write
+     * @throws IOException if the string cannot be written
+     */
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string that is written by writeString.
+     *
+     * @param in the stream of the checkpoint
+     * @return the string
+     * @throws IOException if the string cannot be read
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available())
+            throw new IOException("Invalid string length in checkpoint: " + length);
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a device with default values for the given device type, its state is read from the checkpoint afterwards.
+     */
+    private static SmartDevice createDevice(String deviceType, String deviceName) throws IOException {
+        switch (deviceType) {
+            case "Smart Plug":
+                return new SmartPlug(deviceName);
+            case "Smart Camera":
+                return new SmartCamera(deviceName);
+            case "Smart Lamp":
+                return new SmartLamp(deviceName);
+            case "Smart Color Lamp":
+                return new SmartColorLamp(deviceName);
+            default:
+                throw new IOException("Unknown device type: " + deviceType);
+        }
+    }
+}
@@ -0,0 +1,834 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Keeps the state of the devices in primitive arrays, one array for every field and one slot of each for every device, instead of an object per device.<br><br>
+ * A device is identified by an int id, the index of its slots. The type, status and color mode are bits of a byte, the switch time and the calculation start time are epoch seconds,
+ * the ampere, megabytes and consumptions are the bits of doubles, and the kelvin, brightness and color code are ints packed into longs.
+ * The voltage of the plugs has no array, since no command changes it from 220, any other voltage is kept in a map.
+ * The fields of the different device types share the same arrays, e.g. the first value is the ampere of a plug and the kelvin value of a lamp.
+ * Names are kept as Latin-1 bytes in a single array, and found through an open addressing table of ids.<br><br>
+ * The order of the switch times is kept without objects as well: the devices with a switch time are in a binary heap of ids,
+ * which is sorted only when all the devices are iterated, e.g. for a Z-Report, and the devices without a switch time are in a list linked through two int arrays.<br><br>
+ * The devices it gives out are views: SmartDevice objects that hold only the store and the id, and read and write its arrays.
+ * They are created when they are looked up and can be dropped right after. A view of a removed device must not be used anymore.<br><br>
+ * This is the store of a home if -Ddevices.columnar=true is given. It takes about a quarter of the memory of an ObjectDeviceStore,
+ * at the cost of rendering the Z-Report lines again for every report, since they are not cached.
+ */
+public class ColumnarDeviceStore implements DeviceStore {
+    //types of the devices in the lower bits of their states, FREE for the ids that are not used
+    static final byte FREE = 0;
+    static final byte PLUG = 1;
+    static final byte CAMERA = 2;
+    static final byte LAMP = 3;
+    static final byte COLOR_LAMP = 4;
+
+    //bits of the states above the type
+    private static final byte TYPE = 7;
+    private static final byte ON = 8;
+    private static final byte COLOR_MODE = 16;
+
+    //the voltage of every plug, since no command changes it, any other voltage is kept apart
+    private static final int DEFAULT_VOLTAGE = 220;
+
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    //the start of a name that is not in the name bytes: a name that is not Latin-1 or longer than 255 characters, which is kept as a string, or a removed name
+    private static final int NOT_IN_BYTES = -1;
+    private static final int MAX_NAME_BYTES = 255;
+
+    //a packed color code: the value in the lower 32 bits, the number of digits above it, whether the letters are lowercase, and this bit to tell it is packed
+    private static final long PACKED_COLOR = 1L << 62;
+    private static final long LOWERCASE_COLOR = 1L << 40;
+    //the color code of a lamp that is never given one, "Not Specified", and of a color code that is kept as a string
+    private static final long NO_COLOR = 0;
+    private static final long OTHER_COLOR = 1;
+
+    /* The columns, indexed by device id */
+
+    //the type, the status and the color mode of each device
+    private byte[] states = new byte[INITIAL_CAPACITY];
+    private long[] switchTimes = new long[INITIAL_CAPACITY];
+    private long[] scheduleOrders = new long[INITIAL_CAPACITY];
+    //plug: ampere bits, camera: megabytes per second bits, lamp: kelvin value
+    private long[] firstValues = new long[INITIAL_CAPACITY];
+    //plug: energy consumption bits, camera: storage usage bits, lamp: brightness
+    private long[] secondValues = new long[INITIAL_CAPACITY];
+    //plug and camera: calculation start time, color lamp: color code
+    private long[] thirdValues = new long[INITIAL_CAPACITY];
+
+    //devices without a switch time: the previous and next device of the list
+    //devices with a switch time: the position in the heap is kept in previous
+    //free ids: the next free id is kept in next
+    private int[] previous = new int[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+
+    //names: the start of each name in the name bytes, where a byte of its length is followed by its characters
+    private int[] nameStarts = new int[INITIAL_CAPACITY];
+    private byte[] nameBytes = new byte[INITIAL_CAPACITY * 8];
+    private int nameBytesUsed = 0;
+    //bytes of the names that are removed or changed, reclaimed when they are half of the used bytes
+    private int nameBytesFree = 0;
+
+    //names, color codes and voltages that cannot be kept in the columns, by id
+    private final HashMap<Integer, String> wideNames = new HashMap<>();
+    private final HashMap<Integer, String> otherColorCodes = new HashMap<>();
+    private final HashMap<Integer, Integer> otherVoltages = new HashMap<>();
+
+    //id + 1 of the device with each name, 0 for empty slots, found by the hash of the name with linear probing
+    private int[] nameTable = new int[INITIAL_CAPACITY * 2];
+
+    private int capacity = INITIAL_CAPACITY;
+    private int usedIds = 0;
+    private int freeIds = NIL;
+    private int count = 0;
+
+    //ids of the devices with a switch time, a binary heap ordered by switch time and schedule order
+    private int[] heap = new int[INITIAL_CAPACITY];
+    private int heapSize = 0;
+
+    //first and last device of the list of the devices without a switch time, ordered by schedule order
+    private int head = NIL;
+    private int tail = NIL;
+
+    //orders that are handed out for the front of a group decrease, orders for the back of a group increase, as in the SwitchScheduler
+    private long frontOrder = 0;
+    private long backOrder = 0;
+
+    /* DeviceStore */
+
+    @Override
+    public SmartDevice get(String deviceName) {
+        int id = find(deviceName);
+        if (id == NIL)
+            return null;
+
+        SmartDevice view = view(id);
+        view.deviceName = deviceName;
+        return view;
+    }
+
+    @Override
+    public boolean contains(String deviceName) {
+        return find(deviceName) != NIL;
+    }
+
+    @Override
+    public void add(SmartDevice smartDevice) {
+        int id = allocate(smartDevice);
+
+        scheduleOrders[id] = ++backOrder;
+        linkLast(id);
+    }
+
+    @Override
+    public void remove(SmartDevice smartDevice) {
+        int id = idOf(smartDevice);
+
+        if (switchTimes[id] == Time.NONE)
+            unlink(id);
+        else
+            removeFromHeap(previous[id]);
+
+        removeName(id);
+        otherColorCodes.remove(id);
+        otherVoltages.remove(id);
+        states[id] = FREE;
+        next[id] = freeIds;
+        freeIds = id;
+        count--;
+    }
+
+    @Override
+    public void rename(SmartDevice smartDevice, String newName) {
+        int id = idOf(smartDevice);
+
+        removeName(id);
+        putName(id, newName);
+        smartDevice.deviceName = newName;
+    }
+
+    @Override
+    public void setSwitchTime(SmartDevice smartDevice, long switchTime) {
+        int id = idOf(smartDevice);
+        long oldSwitchTime = switchTimes[id];
+
+        // same switch time, the place of the device does not change
+        if (oldSwitchTime == switchTime)
+            return;
+
+        if (oldSwitchTime == Time.NONE)
+            unlink(id);
+        else
+            removeFromHeap(previous[id]);
+
+        // the device was before the new group if its old time was earlier, otherwise it was after it
+        scheduleOrders[id] = oldSwitchTime < switchTime ? --frontOrder : ++backOrder;
+        switchTimes[id] = switchTime;
+
+        // a device without a switch time always comes from an earlier time, so it goes to the front of the list
+        if (switchTime == Time.NONE)
+            linkFirst(id);
+        else
+            addToHeap(id);
+    }
+
+    @Override
+    public ArrayList<SmartDevice> pollDue(long currentTime) {
+        ArrayList<SmartDevice> dueDevices = new ArrayList<>();
+
+        // Time.NONE is later than any time, and only the devices with a switch time are in the heap
+        while (heapSize > 0 && switchTimes[heap[0]] <= currentTime) {
+            int id = heap[0];
+            removeFromHeap(0);
+            dueDevices.add(view(id));
+        }
+
+        frontOrder -= dueDevices.size();
+        for (int i = dueDevices.size() - 1; i >= 0; i--) {
+            int id = dueDevices.get(i).id;
+            switchTimes[id] = Time.NONE;
+            scheduleOrders[id] = frontOrder + i;
+            linkFirst(id);
+        }
+
+        return dueDevices;
+    }
+
+    @Override
+    public void restore(SmartDevice smartDevice, long switchTime, long scheduleOrder) {
+        int id = allocate(smartDevice);
+
+        switchTimes[id] = switchTime;
+        scheduleOrders[id] = scheduleOrder;
+
+        if (switchTime == Time.NONE)
+            linkOrdered(id);
+        else
+            addToHeap(id);
+    }
+
+    @Override
+    public long getFrontOrder() {
+        return frontOrder;
+    }
+
+    @Override
+    public long getBackOrder() {
+        return backOrder;
+    }
+
+    @Override
+    public void restoreOrders(long frontOrder, long backOrder) {
+        this.frontOrder = frontOrder;
+        this.backOrder = backOrder;
+    }
+
+    @Override
+    public long firstSwitchTime() {
+        return heapSize > 0 ? switchTimes[heap[0]] : Time.NONE;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int pendingSwitches() {
+        return heapSize;
+    }
+
+    /**
+     * @return an iterator over views of the devices in the order of their switch times, which sorts a copy of the heap as it goes
+     */
+    @Override
+    public Iterator<SmartDevice> iterator() {
+        return new Iterator<SmartDevice>() {
+            private final int[] pending = Arrays.copyOf(heap, heapSize);
+            private int pendingSize = heapSize;
+            private int nextInList = head;
+
+            @Override
+            public boolean hasNext() {
+                return pendingSize > 0 || nextInList != NIL;
+            }
+
+            @Override
+            public SmartDevice next() {
+                if (pendingSize > 0) {
+                    int id = pending[0];
+                    pending[0] = pending[--pendingSize];
+                    siftDown(pending, pendingSize, 0, false);
+                    return view(id);
+                }
+
+                if (nextInList == NIL)
+                    throw new NoSuchElementException();
+
+                int id = nextInList;
+                nextInList = next[id];
+                return view(id);
+            }
+        };
+    }
+
+    /* The columns of the views */
+
+    String getName(int id) {
+        if (nameStarts[id] == NOT_IN_BYTES)
+            return wideNames.get(id);
+
+        return new String(nameBytes, nameStarts[id] + 1, nameLength(id), StandardCharsets.ISO_8859_1);
+    }
+
+    long getSwitchTime(int id) {
+        return switchTimes[id];
+    }
+
+    long getScheduleOrder(int id) {
+        return scheduleOrders[id];
+    }
+
+    boolean isOn(int id) {
+        return (states[id] & ON) != 0;
+    }
+
+    void setOn(int id, boolean on) {
+        states[id] = (byte) (on ? states[id] | ON : states[id] & ~ON);
+    }
+
+    double getAmpere(int id) {
+        return Double.longBitsToDouble(firstValues[id]);
+    }
+
+    void setAmpere(int id, double ampere) {
+        firstValues[id] = Double.doubleToRawLongBits(ampere);
+    }
+
+    int getVoltage(int id) {
+        return otherVoltages.getOrDefault(id, DEFAULT_VOLTAGE);
+    }
+
+    void setVoltage(int id, int voltage) {
+        if (voltage == DEFAULT_VOLTAGE)
+            otherVoltages.remove(id);
+        else
+            otherVoltages.put(id, voltage);
+    }
+
+    double getTotalEnergyConsumption(int id) {
+        return Double.longBitsToDouble(secondValues[id]);
+    }
+
+    void setTotalEnergyConsumption(int id, double consumption) {
+        secondValues[id] = Double.doubleToRawLongBits(consumption);
+    }
+
+    double getMegabytesPerSecond(int id) {
+        return Double.longBitsToDouble(firstValues[id]);
+    }
+
+    void setMegabytesPerSecond(int id, double megabytesPerSecond) {
+        firstValues[id] = Double.doubleToRawLongBits(megabytesPerSecond);
+    }
+
+    double getTotalMegabyteUsage(int id) {
+        return Double.longBitsToDouble(secondValues[id]);
+    }
+
+    void setTotalMegabyteUsage(int id, double usage) {
+        secondValues[id] = Double.doubleToRawLongBits(usage);
+    }
+
+    long getCalculationStartTime(int id) {
+        return thirdValues[id];
+    }
+
+    void setCalculationStartTime(int id, long time) {
+        thirdValues[id] = time;
+    }
+
+    int getKelvinValue(int id) {
+        return (int) firstValues[id];
+    }
+
+    void setKelvinValue(int id, int kelvinValue) {
+        firstValues[id] = kelvinValue;
+    }
+
+    int getBrightnessPercentage(int id) {
+        return (int) secondValues[id];
+    }
+
+    void setBrightnessPercentage(int id, int brightness) {
+        secondValues[id] = brightness;
+    }
+
+    boolean isInColorMode(int id) {
+        return (states[id] & COLOR_MODE) != 0;
+    }
+
+    void setColorMode(int id, boolean colorMode) {
+        states[id] = (byte) (colorMode ? states[id] | COLOR_MODE : states[id] & ~COLOR_MODE);
+    }
+
+    /**
+     * @return the color code exactly as it was given, or "Not Specified"
+     */
+    String getColorCode(int id) {
+        long packed = thirdValues[id];
+
+        if (packed == NO_COLOR)
+            return "Not Specified";
+        if (packed == OTHER_COLOR)
+            return otherColorCodes.get(id);
+
+        String digits = Long.toHexString(packed & 0xFFFFFFFFL);
+        if ((packed & LOWERCASE_COLOR) == 0)
+            digits = digits.toUpperCase();
+
+        int digitCount = (int) (packed >>> 32) & 0xFF;
+        StringBuilder colorCode = new StringBuilder(2 + digitCount).append("0x");
+        for (int i = digits.length(); i < digitCount; i++)
+            colorCode.append('0');
+
+        return colorCode.append(digits).toString();
+    }
+
+    /**
+     * Keeps a color code like 0x1A2B3C as its value, number of digits and the case of its letters, and any other one as it is.
+     */
+    void setColorCode(int id, String colorCode) {
+        otherColorCodes.remove(id);
+
+        if ("Not Specified".equals(colorCode)) {
+            thirdValues[id] = NO_COLOR;
+            return;
+        }
+
+        long packed = packColorCode(colorCode);
+        if (packed == OTHER_COLOR)
+            otherColorCodes.put(id, colorCode);
+
+        thirdValues[id] = packed;
+    }
+
+    /* Ids and views */
+
+    /**
+     * @return a new view of the device with the given id
+     */
+    private SmartDevice view(int id) {
+        switch (states[id] & TYPE) {
+            case PLUG:
+                return new SmartPlug(this, id);
+            case CAMERA:
+                return new SmartCamera(this, id);
+            case LAMP:
+                return new SmartLamp(this, id);
+            case COLOR_LAMP:
+                return new SmartColorLamp(this, id);
+            default:
+                throw new IllegalStateException("No device with id " + id);
+        }
+    }
+
+    private int idOf(SmartDevice smartDevice) {
+        if (smartDevice.store != this)
+            throw new IllegalArgumentException("Not a device of this store: " + smartDevice.getDeviceName());
+
+        return smartDevice.id;
+    }
+
+    private static byte typeOf(SmartDevice smartDevice) {
+        // a color lamp is a lamp as well, so it is checked first
+        if (smartDevice instanceof SmartColorLamp)
+            return COLOR_LAMP;
+        if (smartDevice instanceof SmartLamp)
+            return LAMP;
+        if (smartDevice instanceof SmartCamera)
+            return CAMERA;
+        if (smartDevice instanceof SmartPlug)
+            return PLUG;
+
+        throw new IllegalArgumentException("Unknown device type: " + smartDevice.deviceType);
+    }
+
+    /**
+     * Gives an id to a device that is not in any store, and copies its name and state into the columns.
+     *
+     * @return the id of the device, whose place in the order is still to be set
+     */
+    private int allocate(SmartDevice smartDevice) {
+        int id;
+        if (freeIds != NIL) {
+            id = freeIds;
+            freeIds = next[id];
+        } else {
+            if (usedIds == capacity)
+                grow();
+            id = usedIds++;
+        }
+
+        states[id] = typeOf(smartDevice);
+        switchTimes[id] = Time.NONE;
+        firstValues[id] = 0;
+        secondValues[id] = 0;
+        thirdValues[id] = 0;
+        putName(id, smartDevice.getDeviceName());
+        count++;
+
+        view(id).copyState(smartDevice);
+        return id;
+    }
+
+    private void grow() {
+        capacity = capacity + (capacity >> 1);
+
+        states = Arrays.copyOf(states, capacity);
+        switchTimes = Arrays.copyOf(switchTimes, capacity);
+        scheduleOrders = Arrays.copyOf(scheduleOrders, capacity);
+        firstValues = Arrays.copyOf(firstValues, capacity);
+        secondValues = Arrays.copyOf(secondValues, capacity);
+        thirdValues = Arrays.copyOf(thirdValues, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        next = Arrays.copyOf(next, capacity);
+        nameStarts = Arrays.copyOf(nameStarts, capacity);
+    }
+
+    /* The list of the devices without a switch time */
+
+    private void linkFirst(int id) {
+        previous[id] = NIL;
+        next[id] = head;
+
+        if (head == NIL)
+            tail = id;
+        else
+            previous[head] = id;
+        head = id;
+    }
+
+    private void linkLast(int id) {
+        previous[id] = tail;
+        next[id] = NIL;
+
+        if (tail == NIL)
+            head = id;
+        else
+            next[tail] = id;
+        tail = id;
+    }
+
+    /**
+     * Links the device at the place of its schedule order, searched from the end, where devices are restored in order.
+     */
+    private void linkOrdered(int id) {
+        int after = tail;
+        while (after != NIL && scheduleOrders[after] > scheduleOrders[id])
+            after = previous[after];
+
+        if (after == NIL) {
+            linkFirst(id);
+            return;
+        }
+
+        previous[id] = after;
+        next[id] = next[after];
+        if (next[after] == NIL)
+            tail = id;
+        else
+            previous[next[after]] = id;
+        next[after] = id;
+    }
+
+    private void unlink(int id) {
+        if (previous[id] == NIL)
+            head = next[id];
+        else
+            next[previous[id]] = next[id];
+
+        if (next[id] == NIL)
+            tail = previous[id];
+        else
+            previous[next[id]] = previous[id];
+    }
+
+    /* The heap of the devices with a switch time */
+
+    private void addToHeap(int id) {
+        if (heapSize == heap.length)
+            heap = Arrays.copyOf(heap, heapSize + (heapSize >> 1) + 1);
+
+        heap[heapSize] = id;
+        previous[id] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void removeFromHeap(int position) {
+        int last = heap[--heapSize];
+        if (position == heapSize)
+            return;
+
+        heap[position] = last;
+        previous[last] = position;
+        siftDown(heap, heapSize, position, true);
+        siftUp(previous[last]);
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!before(id, heap[parent]))
+                break;
+
+            heap[position] = heap[parent];
+            previous[heap[position]] = position;
+            position = parent;
+        }
+
+        heap[position] = id;
+        previous[id] = position;
+    }
+
+    /**
+     * Moves the id at the given position down the given heap, which is the heap of the store or a copy of it.
+     *
+     * @param trackPositions true to keep the positions of the ids, only for the heap of the store
+     */
+    private void siftDown(int[] heap, int size, int position, boolean trackPositions) {
+        int id = heap[position];
+
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && before(heap[child + 1], heap[child]))
+                child++;
+            if (!before(heap[child], id))
+                break;
+
+            heap[position] = heap[child];
+            if (trackPositions)
+                previous[heap[position]] = position;
+            position = child;
+        }
+
+        heap[position] = id;
+        if (trackPositions)
+            previous[id] = position;
+    }
+
+    /**
+     * @return true if the first device comes before the second one, by switch time and then by schedule order
+     */
+    private boolean before(int first, int second) {
+        if (switchTimes[first] != switchTimes[second])
+            return switchTimes[first] < switchTimes[second];
+
+        return scheduleOrders[first] < scheduleOrders[second];
+    }
+
+    /* The names */
+
+    /**
+     * @return the id of the device with the given name, NIL if there is none
+     */
+    private int find(String deviceName) {
+        int mask = nameTable.length - 1;
+
+        for (int slot = spread(deviceName.hashCode()) & mask; nameTable[slot] != 0; slot = (slot + 1) & mask) {
+            int id = nameTable[slot] - 1;
+            if (nameEquals(id, deviceName))
+                return id;
+        }
+
+        return NIL;
+    }
+
+    private boolean nameEquals(int id, String deviceName) {
+        if (nameStarts[id] == NOT_IN_BYTES)
+            return deviceName.equals(wideNames.get(id));
+
+        int length = nameLength(id);
+        if (length != deviceName.length())
+            return false;
+
+        int start = nameStarts[id] + 1;
+        for (int i = 0; i < length; i++) {
+            if ((nameBytes[start + i] & 0xFF) != deviceName.charAt(i))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the hash of the name of the device, the same as the hash of the name as a String
+     */
+    private int nameHash(int id) {
+        if (nameStarts[id] == NOT_IN_BYTES)
+            return wideNames.get(id).hashCode();
+
+        int hash = 0;
+        int end = nameStarts[id] + 1 + nameLength(id);
+        for (int i = nameStarts[id] + 1; i < end; i++)
+            hash = 31 * hash + (nameBytes[i] & 0xFF);
+
+        return hash;
+    }
+
+    private int nameLength(int id) {
+        return nameBytes[nameStarts[id]] & 0xFF;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void putName(int id, String deviceName) {
+        if (isLatin1(deviceName)) {
+            int length = deviceName.length();
+            if (nameBytesUsed + 1 + length > nameBytes.length)
+                nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytesUsed + 1 + length, nameBytes.length + (nameBytes.length >> 1)));
+
+            nameBytes[nameBytesUsed] = (byte) length;
+            for (int i = 0; i < length; i++)
+                nameBytes[nameBytesUsed + 1 + i] = (byte) deviceName.charAt(i);
+
+            nameStarts[id] = nameBytesUsed;
+            nameBytesUsed += 1 + length;
+        } else {
+            nameStarts[id] = NOT_IN_BYTES;
+            wideNames.put(id, deviceName);
+        }
+
+        // the table is kept at most half full
+        if (2 * (count + 1) > nameTable.length)
+            resizeNameTable(nameTable.length * 2);
+        insertIntoNameTable(id, nameHash(id));
+    }
+
+    private void removeName(int id) {
+        int mask = nameTable.length - 1;
+        int slot = spread(nameHash(id)) & mask;
+        while (nameTable[slot] != id + 1)
+            slot = (slot + 1) & mask;
+
+        // the following entries of the same run are moved back, so that no lookup stops at the emptied slot too early
+        int empty = slot;
+        nameTable[empty] = 0;
+        for (slot = (slot + 1) & mask; nameTable[slot] != 0; slot = (slot + 1) & mask) {
+            int home = spread(nameHash(nameTable[slot] - 1)) & mask;
+            if (((slot - home) & mask) >= ((slot - empty) & mask)) {
+                nameTable[empty] = nameTable[slot];
+                nameTable[slot] = 0;
+                empty = slot;
+            }
+        }
+
+        if (nameStarts[id] == NOT_IN_BYTES) {
+            wideNames.remove(id);
+        } else {
+            nameBytesFree += 1 + nameLength(id);
+            nameStarts[id] = NOT_IN_BYTES;
+            if (nameBytesFree > nameBytesUsed / 2)
+                compactNames();
+        }
+    }
+
+    private void insertIntoNameTable(int id, int hash) {
+        int mask = nameTable.length - 1;
+        int slot = spread(hash) & mask;
+        while (nameTable[slot] != 0)
+            slot = (slot + 1) & mask;
+
+        nameTable[slot] = id + 1;
+    }
+
+    private void resizeNameTable(int size) {
+        int[] oldTable = nameTable;
+        nameTable = new int[size];
+
+        for (int entry : oldTable) {
+            if (entry != 0)
+                insertIntoNameTable(entry - 1, nameHash(entry - 1));
+        }
+    }
+
+    /**
+     * Copies the names of the devices to a new array without the bytes of the removed and changed names.
+     */
+    private void compactNames() {
+        byte[] compacted = new byte[Math.max(INITIAL_CAPACITY, nameBytesUsed - nameBytesFree + (nameBytesUsed >> 2))];
+        int used = 0;
+
+        for (int id = 0; id < usedIds; id++) {
+            if (states[id] == FREE || nameStarts[id] == NOT_IN_BYTES)
+                continue;
+
+            int length = 1 + nameLength(id);
+            System.arraycopy(nameBytes, nameStarts[id], compacted, used, length);
+            nameStarts[id] = used;
+            used += length;
+        }
+
+        nameBytes = compacted;
+        nameBytesUsed = used;
+        nameBytesFree = 0;
+    }
+
+    private static boolean isLatin1(String string) {
+        if (string.length() > MAX_NAME_BYTES)
+            return false;
+
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xFF)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the packed color code, OTHER_COLOR if it is not "0x" followed by 1 to 8 hexadecimal digits whose letters are all upper or all lower case
+     */
+    private static long packColorCode(String colorCode) {
+        int digitCount = colorCode.length() - 2;
+        if (!colorCode.startsWith("0x") || digitCount < 1 || digitCount > 8)
+            return OTHER_COLOR;
+
+        long value = 0;
+        boolean upper = false;
+        boolean lower = false;
+
+        for (int i = 2; i < colorCode.length(); i++) {
+            char c = colorCode.charAt(i);
+            int digit = Character.digit(c, 16);
+            if (digit < 0 || c > 'f')
+                return OTHER_COLOR;
+
+            upper |= c >= 'A' && c <= 'F';
+            lower |= c >= 'a' && c <= 'f';
+            value = value << 4 | digit;
+        }
+
+        if (upper && lower)
+            return OTHER_COLOR;
+
+        return PACKED_COLOR | (lower ? LOWERCASE_COLOR : 0) | (long) digitCount << 32 | value;
+    }
+}
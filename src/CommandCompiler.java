@@ -0,0 +1,217 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Compiles a tab separated command file into a compact binary file, which is executed by BinaryLineSource with the same output.<br><br>
+ * Every command is written as an opcode byte for its keyword and its arguments, each of them with a tag byte:
+ * device names and other strings are interned into a string table and written as varint ids (a new string is written once, where it is first used, as UTF-8),
+ * ints are written as varints, times as epoch seconds and color codes as packed ints, so they do not have to be parsed again when the file is replayed.
+ * Doubles are written both as strings and as their values.<br><br>
+ * An argument is written as a number only if writing the number back gives exactly the same characters, otherwise it is kept as a string,
+ * so that the command lines, which are echoed to the output, are rebuilt exactly.<br><br>
+ * Usage: java CommandCompiler commandFile binaryFile
+ */
+public class CommandCompiler {
+    //"SHCB", to recognize compiled command files
+    static final int MAGIC = 0x53484342;
+    static final int VERSION = 1;
+
+    //keywords that are written as opcodes, opcode 0 means the keyword is written as a string argument
+    static final String[] KEYWORDS = {
+            null, "SetInitialTime", "Add", "Remove", "ChangeName", "Switch", "ZReport", "Nop", "SetTime", "SkipMinutes",
+            "SetSwitchTime", "PlugIn", "PlugOut", "SetKelvin", "SetBrightness", "SetWhite", "SetColorCode", "SetColor"
+    };
+
+    //tags of the arguments
+    static final int TAG_STRING = 0;
+    static final int TAG_INT = 1;
+    static final int TAG_DOUBLE = 2;
+    static final int TAG_TIME = 3;
+    static final int TAG_HEX_LOWER = 4;
+    static final int TAG_HEX_UPPER = 5;
+
+    private final DataOutputStream out;
+    private final HashMap<String, Integer> stringTable = new HashMap<>();
+    private final HashMap<String, Integer> opcodes = new HashMap<>();
+
+    private CommandCompiler(DataOutputStream out) {
+        this.out = out;
+
+        for (int i = 1; i < KEYWORDS.length; i++)
+            opcodes.put(KEYWORDS[i], i);
+    }
+
+    /**
+     * Compiles the command file at the given path into a binary file.
+     *
+     * @param inputPath  path of the tab separated command file
+     * @param outputPath path of the binary file, which is created from zero
+     * @return the number of compiled commands, -1 if the command file cannot be read
+     * @throws IOException if the binary file cannot be written
+     */
+    public static int compile(String inputPath, String outputPath) throws IOException {
+        LineSource lines = FileInput.openFile(inputPath, true, true);
+        if (lines == null)
+            return -1;
+
+        int commandCount = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputPath)))) {
+            CommandCompiler compiler = new CommandCompiler(out);
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            String line;
+            while ((line = lines.nextLine()) != null) {
+                compiler.writeCommand(line);
+                commandCount++;
+            }
+        } finally {
+            lines.close();
+        }
+
+        return commandCount;
+    }
+
+    /**
+     * Writes a single command line, with all of its tab separated fields, the empty ones included.
+     */
+    private void writeCommand(String line) throws IOException {
+        String[] fields = line.split("\t", -1);
+        Integer opcode = opcodes.get(fields[0]);
+        int first = opcode != null ? 1 : 0;
+
+        out.writeByte(opcode != null ? opcode : 0);
+        writeVarInt(out, fields.length - first);
+
+        for (int i = first; i < fields.length; i++)
+            writeArgument(fields[i]);
+    }
+
+    /**
+     * Writes an argument as a number if it is written back with the same characters, otherwise as a string.
+     */
+    private void writeArgument(String field) throws IOException {
+        int length = field.length();
+
+        // ints, e.g. kelvin, brightness and minutes
+        if (length > 0 && length <= 11 && (Character.isDigit(field.charAt(0)) || field.charAt(0) == '-')) {
+            try {
+                int value = Integer.parseInt(field);
+                if (Integer.toString(value).equals(field)) {
+                    out.writeByte(TAG_INT);
+                    writeVarInt(out, (value << 1) ^ (value >> 31));
+                    return;
+                }
+            } catch (NumberFormatException ignored) {
+                // not an int, checked as another kind below
+            }
+        }
+
+        // times, in the format "yyyy-MM-dd_HH:mm:ss"
+        if (length == 19 && field.charAt(10) == '_') {
+            try {
+                long time = Time.parseTime(field);
+                if (Time.format(time).equals(field)) {
+                    out.writeByte(TAG_TIME);
+                    out.writeLong(time);
+                    return;
+                }
+            } catch (IllegalArgumentException ignored) {
+                // not a time, checked as another kind below
+            }
+        }
+
+        // color codes, e.g. "0x00FF00"
+        if (length > 2 && length <= 10 && field.startsWith("0x")) {
+            try {
+                int value = Integer.parseInt(field, 2, length, 16);
+                String digits = hexDigits(value, length - 2);
+
+                if (value >= 0 && digits.equals(field.substring(2))) {
+                    out.writeByte(TAG_HEX_LOWER);
+                    writeVarInt(out, value);
+                    out.writeByte(length - 2);
+                    return;
+                } else if (value >= 0 && digits.toUpperCase().equals(field.substring(2))) {
+                    out.writeByte(TAG_HEX_UPPER);
+                    writeVarInt(out, value);
+                    out.writeByte(length - 2);
+                    return;
+                }
+            } catch (NumberFormatException ignored) {
+                // not a color code, checked as another kind below
+            }
+        }
+
+        // doubles, e.g. ampere and megabytes, are kept as strings since they are not written back with the same characters
+        if (length > 0 && length <= 32 && (Character.isDigit(field.charAt(0)) || field.charAt(0) == '.' || field.charAt(0) == '-')) {
+            try {
+                double value = CommandTokens.parseDouble(field);
+                out.writeByte(TAG_DOUBLE);
+                writeString(field);
+                out.writeLong(Double.doubleToRawLongBits(value));
+                return;
+            } catch (NumberFormatException ignored) {
+                // not a double, written as a string
+            }
+        }
+
+        out.writeByte(TAG_STRING);
+        writeString(field);
+    }
+
+    /**
+     * Writes the id of the string in the string table, followed by the string itself if it is used for the first time.
+     */
+    private void writeString(String string) throws IOException {
+        Integer id = stringTable.get(string);
+
+        if (id != null) {
+            writeVarInt(out, id);
+            return;
+        }
+
+        id = stringTable.size();
+        stringTable.put(string, id);
+        writeVarInt(out, id);
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return the lower case hexadecimal digits of the value, padded with zeros to the given width
+     */
+    static String hexDigits(int value, int width) {
+        StringBuilder digits = new StringBuilder(Integer.toHexString(value));
+
+        while (digits.length() < width)
+            digits.insert(0, '0');
+
+        return digits.toString();
+    }
+
+    /**
+     * Writes an unsigned int in 7-bit groups, the high bit of each byte tells that another byte follows.
+     */
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int commandCount = compile(args[0], args[1]);
+
+        if (commandCount >= 0)
+            System.out.println(commandCount + " commands are compiled to " + args[1]);
+    }
+}
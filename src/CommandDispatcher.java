@@ -0,0 +1,240 @@
+import java.util.ArrayList;
+
+/**
+ * Keeps a table of the commands that can be given in the command file, and calls the right handler for a command line.<br><br>
+ * Each command is registered with its keyword and the number of arguments it accepts (the keyword included),
+ * so that a command line is split only once and dispatched with a single lookup.
+ * The keyword is looked up as a view into the line, so no string is created for it.<br><br>
+ * New commands, and new device types for the "Add" command, can be registered from outside without changing Main.
+ */
+public class CommandDispatcher {
+
+    /**
+     * A registered command, with the range of the number of arguments it accepts.
+     */
+    private static class Command {
+        private final int id;
+        private final int minArgs;
+        private final int maxArgs;
+        private final CommandHandler handler;
+
+        private Command(int id, int minArgs, int maxArgs, CommandHandler handler) {
+            this.id = id;
+            this.minArgs = minArgs;
+            this.maxArgs = maxArgs;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * A hash table from keywords to values that is looked up with any character sequence, e.g. an argument view of CommandTokens,
+     * without turning it into a string first. Keywords are only added, never removed.
+     */
+    private static class KeywordTable<V> {
+        private String[] keys = new String[32];
+        private Object[] values = new Object[32];
+        private int size = 0;
+
+        @SuppressWarnings("unchecked")
+        private V get(CharSequence keyword) {
+            int mask = keys.length - 1;
+
+            for (int slot = hash(keyword) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot].contentEquals(keyword))
+                    return (V) values[slot];
+            }
+
+            return null;
+        }
+
+        private void put(String keyword, V value) {
+            // the table is kept at most half full, so that the probes stay short
+            if (2 * (size + 1) > keys.length)
+                resize();
+
+            int mask = keys.length - 1;
+            int slot = hash(keyword) & mask;
+            while (keys[slot] != null && !keys[slot].equals(keyword))
+                slot = (slot + 1) & mask;
+
+            if (keys[slot] == null)
+                size++;
+            keys[slot] = keyword;
+            values[slot] = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void resize() {
+            String[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new String[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null)
+                    put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+
+        /**
+         * @return the same hash as String.hashCode of the characters, spread over the lower bits
+         */
+        private static int hash(CharSequence keyword) {
+            int hash = 0;
+            for (int i = 0; i < keyword.length(); i++)
+                hash = 31 * hash + keyword.charAt(i);
+
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    //id of a command line whose keyword is not registered
+    public static final int UNRECOGNIZED = 0;
+
+    private static final KeywordTable<Command> commands = new KeywordTable<>();
+    //keywords of the commands by their ids, ids are given in the order the commands are registered
+    private static final ArrayList<String> keywords = new ArrayList<>();
+
+    //handlers of the "Add" command, for every device type
+    private static final KeywordTable<CommandHandler> deviceTypes = new KeywordTable<>();
+
+    static {
+        keywords.add("(unrecognized)");
+
+        /* General SmartDevice Commands */
+        // number of arguments of the Add command changes with device type, so each device type checks it by itself
+        register("Add", 2, Integer.MAX_VALUE, CommandDispatcher::addDevice);
+        register("Remove", 2, SmartDevice::removeDevice);
+        register("ChangeName", 3, SmartDevice::changeName);
+        register("Switch", 3, SmartDevice::switchNow);
+        register("ZReport", 1, args -> SmartDevice.displayZReport());
+
+        /* Time Manipulation Commands */
+        register("Nop", 1, args -> SmartDevice.nop());
+        register("SetTime", 2, Time::setCurrentTime);
+        register("SkipMinutes", 2, Time::skipMinutes);
+        register("SetSwitchTime", 3, SmartDevice::switchLater);
+
+        /* SmartPlug Commands */
+        register("PlugIn", 3, SmartPlug::plugIn);
+        register("PlugOut", 2, SmartPlug::plugOut);
+
+        /* SmartLamp - SmartColorLamp Commands */
+        register("SetKelvin", 3, SmartLamp::changeKelvin);
+        register("SetBrightness", 3, SmartLamp::changeBrightness);
+        register("SetWhite", 4, SmartLamp::changeWhite);
+        register("SetColorCode", 3, SmartColorLamp::changeColorCode);
+        register("SetColor", 4, SmartColorLamp::changeColor);
+
+        /* Device types that can be added */
+        registerDeviceType("SmartCamera", SmartCamera::addSmartCamera);
+        registerDeviceType("SmartLamp", SmartLamp::addSmartLamp);
+        registerDeviceType("SmartColorLamp", SmartColorLamp::addSmartColorLamp);
+        registerDeviceType("SmartPlug", SmartPlug::addSmartPlug);
+    }
+
+    /**
+     * Registers a command that accepts an exact number of arguments.
+     *
+     * @param keyword  the keyword of the command, first argument of the command line
+     * @param argCount the number of arguments of the command, the keyword included
+     * @param handler  the handler that executes the command
+     */
+    public static void register(String keyword, int argCount, CommandHandler handler) {
+        register(keyword, argCount, argCount, handler);
+    }
+
+    /**
+     * Registers a command that accepts a range of number of arguments.
+     *
+     * @param keyword the keyword of the command, first argument of the command line
+     * @param minArgs the minimum number of arguments of the command, the keyword included
+     * @param maxArgs the maximum number of arguments of the command, the keyword included
+     * @param handler the handler that executes the command
+     */
+    public static void register(String keyword, int minArgs, int maxArgs, CommandHandler handler) {
+        // a command that is registered again keeps its id
+        Command registered = commands.get(keyword);
+        int id = registered != null ? registered.id : keywords.size();
+        if (registered == null)
+            keywords.add(keyword);
+
+        commands.put(keyword, new Command(id, minArgs, maxArgs, handler));
+    }
+
+    /**
+     * Registers a device type that can be added with the "Add" command.
+     *
+     * @param deviceType the device type, second argument of the "Add" command line
+     * @param handler    the handler that adds the device, which checks the number of arguments by itself
+     */
+    public static void registerDeviceType(String deviceType, CommandHandler handler) {
+        deviceTypes.put(deviceType, handler);
+    }
+
+    /**
+     * Splits the command line into arguments and calls the handler of the command.<br><br>
+     * If the command is not recognized or its number of arguments is incorrect, writes an error message.<br><br>
+     * The arguments are kept in the CommandTokens of the current home, which is reused for every line of that home.
+     *
+     * @param line the trimmed, non-empty command line
+     * @return the id of the command, UNRECOGNIZED if the keyword is not registered
+     */
+    public static int dispatch(String line) {
+        CommandTokens args = SmartHome.current().args;
+
+        // a reader of pre-compiled commands has already split the line and attached the parsed arguments to it
+        if (args.getLine() != line)
+            args.reset(line);
+
+        Command command = commands.get(args.get(0));
+
+        if (command == null) {
+            write("ERROR: Erroneous command!");
+            return UNRECOGNIZED;
+        }
+
+        if (args.count() < command.minArgs || args.count() > command.maxArgs)
+            write("ERROR: Erroneous command!");
+        else
+            command.handler.execute(args);
+
+        return command.id;
+    }
+
+    /**
+     * @return the number of command ids that are given until now, UNRECOGNIZED included
+     */
+    public static int commandIdCount() {
+        return keywords.size();
+    }
+
+    /**
+     * @param id the id of a command, returned by dispatch
+     * @return the keyword of the command
+     */
+    public static String keyword(int id) {
+        return keywords.get(id);
+    }
+
+    /**
+     * Calls the handler of the device type given in the "Add" command.
+     *
+     * @param args the arguments of the "Add" command line
+     */
+    private static void addDevice(CommandTokens args) {
+        CommandHandler handler = deviceTypes.get(args.get(1));
+
+        if (handler == null) {
+            write("ERROR: Erroneous command!");
+            return;
+        }
+
+        handler.execute(args);
+    }
+
+    private static void write(String content) {
+        FileOutput.write(content);
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * A command that can be given in the command file, called by the CommandDispatcher with the already split arguments of the command line.
+ */
+public interface CommandHandler {
+    /**
+     * Executes the command.
+     *
+     * @param args the tab separated arguments of the command line, argument 0 is the command keyword itself
+     */
+    void execute(CommandTokens args);
+}
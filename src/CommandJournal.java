@@ -0,0 +1,347 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the simulation of a home recoverable after a crash, with a write-ahead command log and periodic checkpoints in a directory.<br><br>
+ * Every processed command is appended to the command log, and every "interval" commands the whole state of the home is captured as a Checkpoint,
+ * which is written to disk by a background thread so that the commands are not held up by it.<br><br>
+ * When the commands of the home are started again after a crash, the last checkpoint is restored, the output file is cut back to where it was at that checkpoint,
+ * and the commands that are logged after it are processed again, before continuing with the commands that are not processed at all.
+ * So the output is the same as the output of a run without a crash.<br><br>
+ * A checkpoint is only restored for the input file and the output file it is captured for, and only if the input file is not changed since
+ * and the output file still has all the output until the checkpoint. Otherwise, or if there is a log but no checkpoint yet,
+ * the files in the directory are left over from other commands and are deleted, and the commands start from zero.<br><br>
+ * The log is synced to disk before a checkpoint that refers to its length is written, and a checkpoint is synced before it replaces the previous one,
+ * so that a checkpoint never points at data that is lost with a power failure. If the log cannot be written, the journal stops taking checkpoints,
+ * and the last checkpoint on disk, with the commands logged after it, is still recovered correctly.<br><br>
+ * When all the commands are processed, the log and the checkpoint are deleted, so the next run starts from zero.
+ */
+public class CommandJournal {
+    //Checkpoint interval in commands, can be changed with -Dcheckpoint.interval
+    public static int defaultInterval = Integer.getInteger("checkpoint.interval", 10000);
+
+    private static final String LOG_FILE = "commands.log";
+    private static final String CHECKPOINT_FILE = "checkpoint.bin";
+
+    private final Path directory;
+    private final int interval;
+
+    //the input file the journal is kept for, recorded in every checkpoint
+    private final String inputPath;
+    private long inputSize;
+    private long inputModified;
+
+    //checkpoints are written one by one, in the order they are captured
+    private final ExecutorService checkpointWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SmartHome home;
+    private FileOutputStream logFile = null;
+    private OutputStream log = null;
+    //true after the log could not be written, no checkpoints are taken anymore since they would not match the log
+    private volatile boolean broken = false;
+    private long logLength = 0;
+    private long commandCount = 0;
+    private String lastLine = null;
+
+    /**
+     * @param directory the directory of the command log and the checkpoint, created if it does not exist
+     * @param inputPath the path of the command file of the home
+     * @param interval  the number of commands between two checkpoints
+     */
+    public CommandJournal(String directory, String inputPath, int interval) {
+        this.directory = Paths.get(directory);
+        this.inputPath = Checkpoint.absolutePath(inputPath);
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * Restores the home from the last checkpoint and the command log, if there are any, and opens the command log for the new commands.
+     *
+     * @param home  the home the commands are processed on, its output sink must be opened but not written yet
+     * @param input the commands of the home, from the first command on, read from the input file of the journal
+     * @return the commands that are still to be processed: the commands logged after the checkpoint, followed by the rest of the input
+     * @throws IOException if the directory, the log, the checkpoint or the input file cannot be used
+     */
+    public LineSource recover(SmartHome home, LineSource input) throws IOException {
+        this.home = home;
+        Files.createDirectories(directory);
+
+        Path inputFile = Paths.get(inputPath);
+        inputSize = Files.size(inputFile);
+        inputModified = Files.getLastModifiedTime(inputFile).toMillis();
+
+        Checkpoint checkpoint = readCheckpoint();
+        if (checkpoint != null) {
+            checkpoint.restore(home);
+
+            commandCount = checkpoint.getCommandCount();
+            logLength = checkpoint.getLogLength();
+            lastLine = checkpoint.getLastLine();
+
+            // the output of the commands after the checkpoint is written again when they are processed again
+            try (RandomAccessFile output = new RandomAccessFile(home.outputPath, "rw")) {
+                output.setLength(checkpoint.getOutputLength());
+            }
+        }
+
+        List<String> loggedCommands = readLog();
+
+        // the logged commands are logged again while they are processed, so the log is cut back to the checkpoint
+        try (RandomAccessFile logFile = new RandomAccessFile(directory.resolve(LOG_FILE).toFile(), "rw")) {
+            logFile.setLength(logLength);
+        }
+        logFile = new FileOutputStream(directory.resolve(LOG_FILE).toFile(), true);
+        log = new BufferedOutputStream(logFile);
+
+        // the commands that are already processed before the crash are skipped in the input
+        for (long i = 0; i < commandCount + loggedCommands.size(); i++) {
+            if (input.nextLine() == null)
+                break;
+        }
+
+        return new RecoveredLineSource(loggedCommands, input);
+    }
+
+    /**
+     * @return the last command that was processed before the checkpoint that is restored, null if the commands start from zero
+     */
+    public String getLastLine() {
+        return lastLine;
+    }
+
+    /**
+     * Appends the given command to the log, and captures a checkpoint if it is time for one.<br><br>
+     * The command is counted even if it cannot be logged, since it is already processed and its output is written.
+     *
+     * @param line the command that has just been processed
+     */
+    public void commandProcessed(String line) {
+        commandCount++;
+        lastLine = line;
+
+        if (broken)
+            return;
+
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            log.write(bytes);
+        } catch (IOException e) {
+            breakJournal(e);
+            return;
+        }
+        logLength += bytes.length;
+
+        if (commandCount % interval == 0)
+            checkpoint();
+    }
+
+    /**
+     * Captures the state of the home and hands it to the background thread to be written to disk.<br><br>
+     * The log and the output file are flushed first, so that they are at least as long as the checkpoint says.
+     */
+    public void checkpoint() {
+        if (broken)
+            return;
+
+        byte[] checkpoint;
+        try {
+            log.flush();
+        } catch (IOException e) {
+            breakJournal(e);
+            return;
+        }
+
+        try {
+            long outputLength = home.sink != null ? home.sink.length() : 0;
+            checkpoint = Checkpoint.capture(home, inputPath, inputSize, inputModified, commandCount, logLength, outputLength, lastLine);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        checkpointWriter.execute(() -> writeCheckpoint(checkpoint));
+    }
+
+    /**
+     * Waits for the checkpoints that are being written and closes the log, keeping the files so that the commands can be recovered.
+     */
+    public void close() {
+        checkpointWriter.shutdown();
+        try {
+            checkpointWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            if (log != null)
+                log.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            log = null;
+            logFile = null;
+        }
+    }
+
+    /**
+     * Closes the journal and deletes the log and the checkpoint, since all the commands are processed and there is nothing to recover.
+     */
+    public void complete() {
+        close();
+
+        try {
+            Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE));
+            Files.deleteIfExists(directory.resolve(LOG_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the checkpoint in the directory if it can be restored for the files of the home.<br><br>
+     * If it cannot, it is left over from other commands, or there is a log but no checkpoint to check it with,
+     * so the checkpoint and the log are deleted and the commands start from zero.
+     *
+     * @return the checkpoint, null if the commands start from zero
+     */
+    private Checkpoint readCheckpoint() throws IOException {
+        Path checkpointPath = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointPath)) {
+            try {
+                Checkpoint checkpoint = Checkpoint.read(Files.readAllBytes(checkpointPath));
+                if (checkpoint.belongsTo(inputPath, inputSize, inputModified, home.outputPath))
+                    return checkpoint;
+
+                System.err.println("The checkpoint in " + directory + " is not of " + inputPath + " and " + home.outputPath + ", starting from the first command");
+            } catch (IOException e) {
+                System.err.println("The checkpoint in " + directory + " cannot be read, starting from the first command: " + e.getMessage());
+            }
+        }
+
+        Files.deleteIfExists(checkpointPath);
+        Files.deleteIfExists(directory.resolve(LOG_FILE));
+        return null;
+    }
+
+    /**
+     * Marks the journal as broken after the log could not be written, the checkpoint on disk stays valid for the commands that are logged.
+     */
+    private void breakJournal(IOException e) {
+        broken = true;
+        System.err.println("The command log in " + directory + " cannot be written, no more checkpoints are taken: " + e.getMessage());
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file and moves it over the previous checkpoint, so that there is always a complete checkpoint on disk.<br><br>
+     * The log is synced first, since the checkpoint refers to its length, and the temporary file is synced before it is moved,
+     * so that the move never points at data that is not on disk yet.
+     */
+    private void writeCheckpoint(byte[] checkpoint) {
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+
+        try {
+            logFile.getChannel().force(false);
+        } catch (IOException e) {
+            breakJournal(e);
+            return;
+        }
+
+        try {
+            try (FileOutputStream out = new FileOutputStream(temporary.toFile())) {
+                out.write(checkpoint);
+                out.getFD().sync();
+            }
+            Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Syncs the directory, so that the move of the checkpoint is on disk too. Directories cannot be opened for this on every platform, then it is skipped.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported for directories here, the move is still atomic
+        }
+    }
+
+    /**
+     * Reads the complete lines of the log after the checkpoint, a line that was being written during the crash is left out.
+     */
+    private List<String> readLog() throws IOException {
+        List<String> lines = new ArrayList<>();
+        File logFile = directory.resolve(LOG_FILE).toFile();
+
+        if (!logFile.exists() || logFile.length() <= logLength)
+            return lines;
+
+        byte[] tail;
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "r")) {
+            tail = new byte[(int) (file.length() - logLength)];
+            file.seek(logLength);
+            file.readFully(tail);
+        }
+
+        int start = 0;
+        for (int i = 0; i < tail.length; i++) {
+            if (tail[i] == '\n') {
+                lines.add(new String(tail, start, i - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * The commands that are logged after the checkpoint, followed by the rest of the input.
+     */
+    private static class RecoveredLineSource implements LineSource {
+        private final List<String> loggedCommands;
+        private final LineSource input;
+        private int next = 0;
+
+        private RecoveredLineSource(List<String> loggedCommands, LineSource input) {
+            this.loggedCommands = loggedCommands;
+            this.input = input;
+        }
+
+        @Override
+        public String nextLine() {
+            if (next < loggedCommands.size())
+                return loggedCommands.get(next++);
+
+            return input.nextLine();
+        }
+
+        @Override
+        public void close() {
+            input.close();
+        }
+    }
+}
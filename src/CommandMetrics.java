@@ -0,0 +1,295 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the commands dispatched by all the homes of the program, per command keyword, with their errors and a histogram of their latencies.<br><br>
+ * The metrics are enabled with -Dmetrics.file=path, and are written to that file when the program exits,
+ * and every -Dmetrics.interval seconds as well if it is given. When they are not enabled, Main dispatches the commands as before,
+ * so the only cost left is the check of a constant.<br><br>
+ * The latencies are kept in histograms of fixed buckets like HdrHistogram: exact below 16 nanoseconds, and 16 buckets for every power of two above,
+ * so a recorded latency is off by less than 1/16 of it. Recording only increments counters in preallocated arrays, without any allocation.
+ * The counters are split into stripes by the recording thread, so the homes that run on different threads do not contend for them.<br><br>
+ * The gauges are the devices and the pending switch times of the homes that are being run, with their peaks.
+ */
+public class CommandMetrics {
+    public static final String FILE = System.getProperty("metrics.file");
+    public static final boolean ENABLED = FILE != null;
+    //seconds between two writes of the metrics file, 0 if it is written only when the program exits
+    public static final long INTERVAL = Long.getLong("metrics.interval", 0);
+
+    //latencies below 2^SUB_BUCKET_BITS nanoseconds have a bucket each, every power of two above is split into 2^SUB_BUCKET_BITS buckets
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    //latencies of 2^MAX_MAGNITUDE nanoseconds (about 18 minutes) and longer are counted in the last bucket
+    private static final int MAX_MAGNITUDE = 40;
+    private static final int BUCKETS = SUB_BUCKETS * (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2);
+
+    //counters of a command in a stripe: the buckets, then the errors, the total and the maximum latency
+    private static final int ERRORS = BUCKETS;
+    private static final int TOTAL_NANOS = BUCKETS + 1;
+    private static final int MAX_NANOS = BUCKETS + 2;
+    private static final int STRIDE = BUCKETS + 3;
+
+    //commands that are registered after the metrics are created are counted as the last one
+    private static final int MAX_COMMANDS = 64;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static final CommandMetrics metrics = ENABLED ? new CommandMetrics() : null;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final int commandCount;
+
+    private final AtomicLong devices = new AtomicLong();
+    private final AtomicLong pendingSwitches = new AtomicLong();
+    private final AtomicLong peakDevices = new AtomicLong();
+    private final AtomicLong peakPendingSwitches = new AtomicLong();
+
+    private final long startNanos = System.nanoTime();
+
+    private CommandMetrics() {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        stripes = new AtomicLongArray[stripeCount];
+        stripeMask = stripeCount - 1;
+        commandCount = Math.min(MAX_COMMANDS, CommandDispatcher.commandIdCount());
+
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new AtomicLongArray(commandCount * STRIDE);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::writeQuietly, "metrics-writer"));
+
+        if (INTERVAL > 0) {
+            ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writer.scheduleAtFixedRate(this::writeQuietly, INTERVAL, INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Dispatches a command line on the current home with the CommandDispatcher, and records its latency, whether it gave an error,
+     * and the devices and pending switches of the home afterwards.<br><br>
+     * Must be called only if the metrics are ENABLED.
+     *
+     * @param home the current home
+     * @param line the trimmed, non-empty command line
+     * @return the id of the command, UNRECOGNIZED if the keyword is not registered
+     */
+    public static int dispatch(SmartHome home, String line) {
+        int errorLines = home.errorLines;
+        long start = System.nanoTime();
+
+        int id = CommandDispatcher.dispatch(line);
+
+        metrics.record(id, System.nanoTime() - start, home.errorLines != errorLines);
+        metrics.updateGauges(home);
+        return id;
+    }
+
+    /**
+     * Removes the devices and pending switches of a home whose commands are all processed from the gauges.
+     *
+     * @param home the home that is finished
+     */
+    public static void homeFinished(SmartHome home) {
+        if (!ENABLED)
+            return;
+
+        metrics.devices.addAndGet(-home.countedDevices);
+        metrics.pendingSwitches.addAndGet(-home.countedSwitches);
+        home.countedDevices = 0;
+        home.countedSwitches = 0;
+    }
+
+    /**
+     * Writes the metrics to the metrics file now, e.g. at the end of a batch, if they are enabled.
+     *
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static void writeNow() {
+        if (!ENABLED)
+            return;
+
+        try {
+            metrics.write(Paths.get(FILE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void record(int id, long nanos, boolean failed) {
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        int offset = Math.min(id, commandCount - 1) * STRIDE;
+
+        stripe.incrementAndGet(offset + bucketOf(nanos));
+        stripe.addAndGet(offset + TOTAL_NANOS, nanos);
+        if (failed)
+            stripe.incrementAndGet(offset + ERRORS);
+
+        long max = stripe.get(offset + MAX_NANOS);
+        while (nanos > max && !stripe.compareAndSet(offset + MAX_NANOS, max, nanos))
+            max = stripe.get(offset + MAX_NANOS);
+    }
+
+    /**
+     * Adds the changes of the home's devices and pending switches since its last command to the gauges.
+     */
+    private void updateGauges(SmartHome home) {
+        int deviceCount = home.smartDevices.size();
+        int switchCount = home.smartDevices.pendingSwitches();
+
+        if (deviceCount != home.countedDevices) {
+            updatePeak(peakDevices, devices.addAndGet(deviceCount - home.countedDevices));
+            home.countedDevices = deviceCount;
+        }
+        if (switchCount != home.countedSwitches) {
+            updatePeak(peakPendingSwitches, pendingSwitches.addAndGet(switchCount - home.countedSwitches));
+            home.countedSwitches = switchCount;
+        }
+    }
+
+    private static void updatePeak(AtomicLong peak, long value) {
+        long current = peak.get();
+        while (value > current && !peak.compareAndSet(current, value))
+            current = peak.get();
+    }
+
+    /**
+     * @param nanos a latency in nanoseconds
+     * @return the index of the bucket the latency is counted in
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) Math.max(0, nanos);
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        if (magnitude > MAX_MAGNITUDE)
+            return BUCKETS - 1;
+
+        int subBucket = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS * (magnitude - SUB_BUCKET_BITS + 1) + subBucket;
+    }
+
+    /**
+     * @param bucket the index of a bucket
+     * @return the highest latency that is counted in the bucket, in nanoseconds
+     */
+    static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((subBucket + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Writes the metrics to a temporary file next to the given one and moves it in its place, so the file is never seen half written.
+     */
+    private synchronized void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write(report());
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeQuietly() {
+        try {
+            write(Paths.get(FILE));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the metrics as text: the totals, a line for every command that is dispatched at least once, and the gauges
+     */
+    private String report() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long[] counters = new long[STRIDE];
+        StringBuilder commandLines = new StringBuilder();
+        long totalCommands = 0;
+        long totalErrors = 0;
+
+        for (int id = 0; id < commandCount; id++) {
+            merge(id, counters);
+
+            long count = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+                count += counters[bucket];
+            if (count == 0)
+                continue;
+
+            totalCommands += count;
+            totalErrors += counters[ERRORS];
+
+            String keyword = id == commandCount - 1 && CommandDispatcher.commandIdCount() > commandCount ? "(other)" : CommandDispatcher.keyword(id);
+            commandLines.append(String.format("%-16s %12d %10d %12.3f", keyword, count, counters[ERRORS], counters[TOTAL_NANOS] / 1e3 / count));
+            for (double percentile : PERCENTILES)
+                commandLines.append(String.format(" %12.3f", percentileOf(counters, count, percentile) / 1e3));
+            commandLines.append(String.format(" %12.3f%n", counters[MAX_NANOS] / 1e3));
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("uptime: %.3f s%n", seconds));
+        report.append(String.format("commands: %d, errors: %d, throughput: %.1f commands/s%n", totalCommands, totalErrors, totalCommands / Math.max(seconds, 1e-9)));
+        report.append(String.format("devices: %d (peak %d)%n", devices.get(), peakDevices.get()));
+        report.append(String.format("pending switches: %d (peak %d)%n%n", pendingSwitches.get(), peakPendingSwitches.get()));
+
+        report.append(String.format("%-16s %12s %10s %12s", "command", "count", "errors", "mean(us)"));
+        for (double percentile : PERCENTILES)
+            report.append(String.format(" %12s", "p" + (percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile)) + "(us)"));
+        report.append(String.format(" %12s%n", "max(us)"));
+        report.append(commandLines);
+
+        return report.toString();
+    }
+
+    /**
+     * Sums the counters of the command in all the stripes, the maximum latency is the maximum of them.
+     */
+    private void merge(int id, long[] counters) {
+        Arrays.fill(counters, 0);
+        int offset = id * STRIDE;
+
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < MAX_NANOS; i++)
+                counters[i] += stripe.get(offset + i);
+            counters[MAX_NANOS] = Math.max(counters[MAX_NANOS], stripe.get(offset + MAX_NANOS));
+        }
+    }
+
+    /**
+     * @return the highest latency of the bucket the given percentile of the latencies falls into, in nanoseconds
+     */
+    private static long percentileOf(long[] counters, long count, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counters[bucket];
+            if (seen >= rank)
+                return Math.min(highestOf(bucket), counters[MAX_NANOS]);
+        }
+
+        return counters[MAX_NANOS];
+    }
+}
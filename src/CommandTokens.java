@@ -0,0 +1,351 @@
+import java.util.Arrays;
+
+/**
+ * The tab separated arguments of a command line, kept as offsets into the line instead of as separate strings.<br><br>
+ * A single CommandTokens object is reset with every command line and shared by the handlers of that command,
+ * so that splitting a line does not create a new array and a new string for every argument.
+ * The arguments are handed out as CharSequence views into the line, which are valid until the next reset.<br><br>
+ * Splitting gives the same arguments as line.split("\t") for a trimmed, non-empty line.<br><br>
+ * A reader of pre-compiled commands (see BinaryLineSource) can also attach the already parsed values of the arguments,
+ * which are then returned by parseInt, parseDouble, Time.parseTime and getString instead of parsing the characters again.
+ */
+public class CommandTokens {
+
+    /**
+     * A view of one argument of the line, reused for every line.
+     */
+    private class Token implements CharSequence {
+        private final int index;
+
+        private Token(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return ends[index] - starts[index];
+        }
+
+        @Override
+        public char charAt(int i) {
+            return line.charAt(starts[index] + i);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return line.substring(starts[index] + start, starts[index] + end);
+        }
+
+        @Override
+        public String toString() {
+            return line.substring(starts[index], ends[index]);
+        }
+
+        private byte kind() {
+            return kinds[index];
+        }
+
+        private long value() {
+            return values[index];
+        }
+    }
+
+    //kinds of the parsed values that can be attached to the arguments
+    static final byte NOT_PARSED = 0;
+    static final byte PARSED_INT = 1;
+    static final byte PARSED_DOUBLE = 2;
+    static final byte PARSED_TIME = 3;
+    static final byte PARSED_HEX = 4;
+
+    //powers of ten that are exactly representable as double, used by parseDouble
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private String line = "";
+    private int count = 0;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private Token[] tokens = new Token[0];
+
+    //parsed values attached to the arguments, doubles are kept as their raw long bits
+    private byte[] kinds = new byte[8];
+    private long[] values = new long[8];
+    private String[] strings = new String[8];
+
+    /**
+     * Splits the given line into its tab separated arguments, replacing the arguments of the previous line.
+     *
+     * @param line the trimmed, non-empty command line
+     */
+    public void reset(String line) {
+        this.line = line;
+        count = 0;
+
+        int start = 0;
+        int tab;
+        while ((tab = line.indexOf('\t', start)) >= 0) {
+            add(start, tab);
+            start = tab + 1;
+        }
+        add(start, line.length());
+
+        // like String.split, trailing empty arguments are discarded
+        while (count > 1 && starts[count - 1] == ends[count - 1])
+            count--;
+    }
+
+    /**
+     * @return the number of arguments of the line, the command keyword included
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param index index of the argument, 0 is the command keyword
+     * @return a view of the argument, which is valid until the next reset
+     * @throws ArrayIndexOutOfBoundsException if there is no such argument, a MissingArgumentException without a stack trace
+     */
+    public CharSequence get(int index) {
+        checkIndex(index);
+        return tokens[index];
+    }
+
+    /**
+     * @param index index of the argument, 0 is the command keyword
+     * @return the argument as a new string, for the arguments that have to be kept, like device names
+     * @throws ArrayIndexOutOfBoundsException if there is no such argument
+     */
+    public String getString(int index) {
+        checkIndex(index);
+
+        if (strings[index] != null)
+            return strings[index];
+
+        return line.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * Attaches the already parsed value of an argument, which must be the value the characters of the argument are parsed to.
+     *
+     * @param index the index of the argument
+     * @param kind  the kind of the value, e.g. PARSED_INT
+     * @param value the value, the raw long bits for a double
+     */
+    void attachValue(int index, byte kind, long value) {
+        kinds[index] = kind;
+        values[index] = value;
+    }
+
+    /**
+     * Attaches a string that has the same characters as the argument, e.g. an interned device name, to be returned by getString.
+     *
+     * @param index  the index of the argument
+     * @param string the string with the characters of the argument
+     */
+    void attachString(int index, String string) {
+        strings[index] = string;
+    }
+
+    /**
+     * @param sequence the characters of a time argument
+     * @return the attached time of the argument in seconds, Time.NONE if no time is attached to it
+     */
+    static long attachedTime(CharSequence sequence) {
+        if (sequence instanceof Token && ((Token) sequence).kind() == PARSED_TIME)
+            return ((Token) sequence).value();
+
+        return Time.NONE;
+    }
+
+    /**
+     * @return the whole command line
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Compares a character sequence with a string ignoring case, the same way String.equalsIgnoreCase does.
+     *
+     * @param sequence the character sequence, e.g. an argument view
+     * @param string   the string to compare with
+     * @return true if both have the same characters ignoring case
+     */
+    public static boolean equalsIgnoreCase(CharSequence sequence, String string) {
+        if (sequence.length() != string.length())
+            return false;
+
+        for (int i = 0; i < string.length(); i++) {
+            char c1 = sequence.charAt(i);
+            char c2 = string.charAt(i);
+
+            if (c1 == c2)
+                continue;
+
+            char u1 = Character.toUpperCase(c1);
+            char u2 = Character.toUpperCase(c2);
+            if (u1 != u2 && Character.toLowerCase(u1) != Character.toLowerCase(u2))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal integer from the given characters, with the same rules as Integer.parseInt.
+     *
+     * @param sequence the characters to be parsed
+     * @return the parsed int value
+     * @throws NumberFormatException if the characters are not a valid int
+     */
+    public static int parseInt(CharSequence sequence) {
+        return parseInt(sequence, 0, 10);
+    }
+
+    /**
+     * Parses an integer in the given radix from the characters starting at the given index, with the same rules as Integer.parseInt.<br><br>
+     * Invalid numbers are common in erroneous commands, so an InvalidNumberException, which has no stack trace, is thrown for them.
+     *
+     * @param sequence   the characters to be parsed
+     * @param beginIndex the index of the first character of the number, e.g. 2 to skip a "0x" prefix
+     * @param radix      the radix of the number, e.g. 16 for a hexadecimal number
+     * @return the parsed int value
+     * @throws NumberFormatException if the characters are not a valid int
+     */
+    public static int parseInt(CharSequence sequence, int beginIndex, int radix) {
+        if (sequence instanceof Token) {
+            Token token = (Token) sequence;
+
+            if (token.kind() == PARSED_INT && beginIndex == 0 && radix == 10)
+                return (int) token.value();
+            if (token.kind() == PARSED_HEX && beginIndex == 2 && radix == 16)
+                return (int) token.value();
+        }
+
+        int endIndex = sequence.length();
+        int i = beginIndex;
+
+        if (i >= endIndex)
+            throw new InvalidNumberException("Empty number");
+
+        // the result is accumulated as a negative number, so that Integer.MIN_VALUE can be parsed too
+        boolean negative = false;
+        int limit = -Integer.MAX_VALUE;
+        char first = sequence.charAt(i);
+
+        if (first < '0') {
+            if (first == '-') {
+                negative = true;
+                limit = Integer.MIN_VALUE;
+            } else if (first != '+')
+                throw new InvalidNumberException("Invalid sign");
+
+            if (++i == endIndex)
+                throw new InvalidNumberException("Sign without digits");
+        }
+
+        int multiplyLimit = limit / radix;
+        int result = 0;
+
+        for (; i < endIndex; i++) {
+            int digit = Character.digit(sequence.charAt(i), radix);
+
+            if (digit < 0 || result < multiplyLimit)
+                throw new InvalidNumberException("Invalid digit or overflow");
+
+            result *= radix;
+            if (result < limit + digit)
+                throw new InvalidNumberException("Overflow");
+
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a double from the given characters, with the same result as Double.parseDouble.<br><br>
+     * Plain decimal numbers with up to 15 digits (like "2.5" or "-10") are converted without creating a string,
+     * which gives the correctly rounded value since both the digits and the power of ten are exact doubles.
+     * Anything else is passed to Double.parseDouble.
+     *
+     * @param sequence the characters to be parsed
+     * @return the parsed double value
+     * @throws NumberFormatException if the characters are not a valid double
+     */
+    public static double parseDouble(CharSequence sequence) {
+        if (sequence instanceof Token) {
+            Token token = (Token) sequence;
+
+            // an int argument is an exact double as well
+            if (token.kind() == PARSED_INT)
+                return (int) token.value();
+            if (token.kind() == PARSED_DOUBLE)
+                return Double.longBitsToDouble(token.value());
+        }
+
+        int length = sequence.length();
+        int i = 0;
+        boolean negative = false;
+
+        if (length > 0 && (sequence.charAt(0) == '-' || sequence.charAt(0) == '+')) {
+            negative = sequence.charAt(0) == '-';
+            i++;
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+
+        for (; i < length; i++) {
+            char c = sequence.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                digits = digits * 10 + (c - '0');
+                digitCount++;
+                if (seenPoint)
+                    fractionDigits++;
+            } else if (c == '.' && !seenPoint)
+                seenPoint = true;
+            else
+                return Double.parseDouble(sequence.toString());
+        }
+
+        if (digitCount == 0 || digitCount > 15)
+            return Double.parseDouble(sequence.toString());
+
+        double value = digits / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            kinds = Arrays.copyOf(kinds, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+            strings = Arrays.copyOf(strings, count * 2);
+        }
+
+        if (count == tokens.length) {
+            Token[] newTokens = Arrays.copyOf(tokens, Math.max(8, count * 2));
+            for (int i = count; i < newTokens.length; i++)
+                newTokens[i] = new Token(i);
+            tokens = newTokens;
+        }
+
+        starts[count] = start;
+        ends[count] = end;
+        kinds[count] = NOT_PARSED;
+        strings[count] = null;
+        count++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count)
+            throw new MissingArgumentException(index);
+    }
+}
@@ -1,5 +1,5 @@
 public class DeviceNotFoundException extends Exception {
     public DeviceNotFoundException() {
-        super("ERROR: There is not such a device!");
+        super("ERROR: There is not such a device!", null, false, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+
+/**
+ * The devices of a SmartHome: finds them by name, and keeps them ordered by their switch times, the order they are switched and displayed in the Z-Report.<br><br>
+ * ObjectDeviceStore keeps every device as an object of its own. ColumnarDeviceStore keeps the state of the devices in primitive arrays instead,
+ * and gives out SmartDevice objects that are views of it, so it holds a large number of devices in a fraction of the memory.
+ * The devices are kept in the same order, and the commands behave the same, with either of them.<br><br>
+ * A device that is created by its constructor is not in any store. It is added with add, and the store may keep its state instead of the object itself,
+ * so the device should be looked up again with get after it is added.
+ */
+public interface DeviceStore extends Iterable<SmartDevice> {
+
+    /**
+     * @param deviceName the name of a device
+     * @return the device with the given name, null if there is no such device
+     */
+    SmartDevice get(String deviceName);
+
+    /**
+     * @param deviceName the name of a device
+     * @return true if there is a device with the given name
+     */
+    boolean contains(String deviceName);
+
+    /**
+     * Adds a new device that has no switch time, after all the devices, like appending it to a list.
+     *
+     * @param smartDevice the device to be added, whose name is not taken by another device
+     */
+    void add(SmartDevice smartDevice);
+
+    /**
+     * Removes the device, the order of the remaining devices is not changed.
+     *
+     * @param smartDevice the device to be removed
+     */
+    void remove(SmartDevice smartDevice);
+
+    /**
+     * Changes the name of the device, the name must not be taken by another device.
+     *
+     * @param smartDevice the device whose name is changed
+     * @param newName     the new name of the device
+     */
+    void rename(SmartDevice smartDevice, String newName);
+
+    /**
+     * Changes the switch time of the device and moves it to its new place in the order.
+     *
+     * @param smartDevice the device whose switch time is changed
+     * @param switchTime  the new switch time, Time.NONE if the device should not be switched anymore
+     */
+    void setSwitchTime(SmartDevice smartDevice, long switchTime);
+
+    /**
+     * Removes the switch times of all the devices whose switch time is before or equal to the given time.<br><br>
+     * Those devices are placed at the front of the devices that have no switch time, keeping their relative order.
+     *
+     * @param currentTime the time the switch times are compared with
+     * @return the devices whose switch time has come, in the order of their switch times
+     */
+    ArrayList<SmartDevice> pollDue(long currentTime);
+
+    /**
+     * Adds a device with the switch time and the order it had when it was saved in a checkpoint.
+     *
+     * @param smartDevice   the device to be restored
+     * @param switchTime    the switch time of the device, Time.NONE if it has no switch time
+     * @param scheduleOrder the order of the device among the devices with the same switch time
+     */
+    void restore(SmartDevice smartDevice, long switchTime, long scheduleOrder);
+
+    /**
+     * @return the last order handed out for the front of a group, saved in checkpoints
+     */
+    long getFrontOrder();
+
+    /**
+     * @return the last order handed out for the back of a group, saved in checkpoints
+     */
+    long getBackOrder();
+
+    /**
+     * Restores the orders that are handed out next, as they were when they were saved in a checkpoint.
+     *
+     * @param frontOrder the last order handed out for the front of a group
+     * @param backOrder  the last order handed out for the back of a group
+     */
+    void restoreOrders(long frontOrder, long backOrder);
+
+    /**
+     * @return the earliest switch time of the devices, Time.NONE if no device has a switch time
+     */
+    long firstSwitchTime();
+
+    /**
+     * @return true if there are no devices
+     */
+    boolean isEmpty();
+
+    /**
+     * @return the number of devices
+     */
+    int size();
+
+    /**
+     * @return the number of devices that have a switch time
+     */
+    int pendingSwitches();
+}
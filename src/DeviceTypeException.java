@@ -1,6 +1,6 @@
 public class DeviceTypeException extends Exception{
 
     public DeviceTypeException(String deviceType) {
-        super("ERROR: This device is not a " + deviceType + "!");
+        super("ERROR: This device is not a " + deviceType + "!", null, false, false);
     }
 }
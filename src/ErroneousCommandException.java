@@ -1,5 +1,5 @@
 public class ErroneousCommandException extends Exception {
     public ErroneousCommandException() {
-        super("ERROR: Erroneous command!");
+        super("ERROR: Erroneous command!", null, false, false);
     }
 }
\ No newline at end of file
@@ -27,4 +27,38 @@ public class FileInput {
             return null;
         }
     }
+
+    /**
+     * Opens the file at the given path and returns a LineSource that reads it line by line, instead of loading the whole file.
+     *
+     * @param path              Path to the file that is going to be read.
+     * @param discardEmptyLines If true, discards empty lines with respect to trim; else, it takes all the lines from the file.
+     * @param trim              Trim status; if true, trims (strip in Python) each line; else, it leaves each line as-is.
+     * @return LineSource of the file, returns null if there is not such a file or this program does not have sufficient permissions to read that file.
+     */
+    public static LineSource openFile(String path, boolean discardEmptyLines, boolean trim) {
+        try {
+            return new BufferedLineSource(path, discardEmptyLines, trim);
+        } catch (IOException e) { //Returns null if there is no such a file.
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Opens the file at the given path through a memory mapping and returns a LineSource that reads it line by line, see MappedLineSource.
+     *
+     * @param path              Path to the file that is going to be read.
+     * @param discardEmptyLines If true, discards empty lines with respect to trim; else, it takes all the lines from the file.
+     * @param trim              Trim status; if true, trims (strip in Python) each line; else, it leaves each line as-is.
+     * @return LineSource of the file, returns null if there is not such a file or this program does not have sufficient permissions to read that file.
+     */
+    public static LineSource openMappedFile(String path, boolean discardEmptyLines, boolean trim) {
+        try {
+            return new MappedLineSource(path, discardEmptyLines, trim);
+        } catch (IOException e) { //Returns null if there is no such a file.
+            e.printStackTrace();
+            return null;
+        }
+    }
 }
\ No newline at end of file
@@ -17,7 +17,54 @@ public class FileOutput {
      */
 
     public static boolean shouldSout = false;
-    public static String path = Main.outFile;
+
+    //Buffer size and flush policy of the output sink, can be changed with -Doutput.bufferSize and -Doutput.flushPolicy
+    public static int bufferSize = Integer.getInteger("output.bufferSize", OutputSink.DEFAULT_BUFFER_SIZE);
+    public static OutputSink.FlushPolicy flushPolicy = OutputSink.FlushPolicy.valueOf(System.getProperty("output.flushPolicy", "ZREPORT"));
+
+    //The output file is written by a writer thread of its own if -Doutput.async=true is given, with -Doutput.asyncBuffers blocks of bufferSize bytes
+    public static boolean asyncOutput = Boolean.getBoolean("output.async");
+    public static int asyncBuffers = Integer.getInteger("output.asyncBuffers", 2);
+
+    /* The write methods go through the output sink of the current SmartHome, which is opened once and kept open */
+
+    /**
+     Opens the output sink of the current home for the given path, which is kept open until the program exits.<br><br>
+     A shutdown hook is registered so that buffered content is not lost even if the program is terminated before close is called.
+     @param outputPath Path for the file content is going to be written.
+     */
+    public static void open(String outputPath) {
+        SmartHome home = SmartHome.current();
+        home.openOutput(outputPath);
+
+        OutputSink openedSink = home.sink;
+        Runtime.getRuntime().addShutdownHook(new Thread(openedSink::close));
+    }
+
+    /**
+     Flushes the buffered content at the end of a ZReport, if the flush policy requires so.
+     */
+    public static void reportBoundary() {
+        OutputSink sink = SmartHome.current().sink;
+        if (sink != null)
+            sink.reportBoundary();
+    }
+
+    /**
+     Flushes all the buffered content to the output file.
+     */
+    public static void flush() {
+        OutputSink sink = SmartHome.current().sink;
+        if (sink != null)
+            sink.flush();
+    }
+
+    /**
+     Flushes all the buffered content and closes the output file.
+     */
+    public static void close() {
+        SmartHome.current().closeOutput();
+    }
 
     /**
      Writes the given content to a file specified in path variable in FileOutput class.<br><br>
@@ -27,7 +74,7 @@ public class FileOutput {
     public static void write(String content) {
         boolean append = true;
         boolean newLine = true;
-        writeToFile(path, content, append, newLine, shouldSout);
+        writeToSink(content, append, newLine, shouldSout);
     }
 
     /**
@@ -38,7 +85,7 @@ public class FileOutput {
      */
     public static void write(String content, boolean append) {
         boolean newLine = true;
-        writeToFile(path, content, append, newLine, shouldSout);
+        writeToSink(content, append, newLine, shouldSout);
     }
 
     /**
@@ -49,7 +96,30 @@ public class FileOutput {
      @param newLine True to add a new line after the given content.
      */
     public static void write(String content, boolean append, boolean newLine) {
-        writeToFile(path, content, append, newLine, shouldSout);
+        writeToSink(content, append, newLine, shouldSout);
+    }
+
+    /**
+     Writes the given content through the output sink of the current home, falls back to writeToFile if the sink is not opened.
+     */
+    private static void writeToSink(String content, boolean append, boolean newLine, boolean sout) {
+        SmartHome home = SmartHome.current();
+        OutputSink sink = home.sink;
+
+        // every error message starts with "ERROR", so the metrics know whether a command gave an error
+        if (CommandMetrics.ENABLED && content.startsWith("ERROR"))
+            home.errorLines++;
+
+        if (sink == null) {
+            writeToFile(home.outputPath, content, append, newLine, sout);
+            return;
+        }
+
+        sink.write(content, append, newLine);
+
+        // For debugging purposes. Prints content also to console if sout is true.
+        if (sout)
+            System.out.print(content + (newLine ? "\n" : ""));
     }
 
     public static void writeToFile(String path, String content, boolean append, boolean newLine, boolean sout) {
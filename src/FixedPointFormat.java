@@ -0,0 +1,70 @@
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats doubles with two decimal places, giving the same text as String.format("%.02f", value)
+ * without creating a Formatter, parsing the pattern and boxing the value every time.<br><br>
+ * Like the Formatter, the value is rounded half up from its shortest decimal representation (the digits Double.toString gives),
+ * so 1.005 is written as "1.01" even though the double is slightly smaller than 1.005.
+ * The digits are appended directly into the given StringBuilder.<br><br>
+ * Values that are too large for the fast path, NaN and infinities are passed to String.format.
+ */
+public class FixedPointFormat {
+
+    //Above this magnitude a double can be closer than 0.01 to more than one two-decimal number, so the comparisons below are not exact
+    private static final double FAST_PATH_LIMIT = 1e12;
+
+    //Formatter uses the separator of the default locale, so the same one is used here
+    private static final char DECIMAL_SEPARATOR;
+    private static final boolean ASCII_DIGITS;
+
+    static {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        DECIMAL_SEPARATOR = symbols.getDecimalSeparator();
+        ASCII_DIGITS = symbols.getZeroDigit() == '0';
+    }
+
+    /**
+     * @param value the value to be formatted
+     * @return the value with two decimal places, same as String.format("%.02f", value)
+     */
+    public static String formatTwoDecimals(double value) {
+        return appendTwoDecimals(new StringBuilder(24), value).toString();
+    }
+
+    /**
+     * Appends the value with two decimal places to the given builder, same as appending String.format("%.02f", value).
+     *
+     * @param builder the builder the formatted value is appended to
+     * @param value   the value to be formatted
+     * @return the given builder
+     */
+    public static StringBuilder appendTwoDecimals(StringBuilder builder, double value) {
+        double magnitude = Math.abs(value);
+
+        if (!(magnitude < FAST_PATH_LIMIT) || !ASCII_DIGITS)
+            return builder.append(String.format("%.02f", value));
+
+        //k is the number of hundredths, k / 100 <= shortest decimal of magnitude < (k + 1) / 100
+        long hundredths = (long) (magnitude * 100);
+        if ((hundredths + 1) / 100.0 <= magnitude)
+            hundredths++;
+        else if (hundredths / 100.0 > magnitude)
+            hundredths--;
+
+        /* The shortest decimal is at least k + 0.5 hundredths exactly when the double is at least the double closest to it,
+        since a decimal with three fraction digits that rounds to this double is its shortest decimal in this range */
+        if (magnitude >= (hundredths * 10 + 5) / 1000.0)
+            hundredths++;
+
+        // Formatter keeps the sign of negative values, even if they are rounded to zero
+        if (Double.compare(value, 0.0) < 0)
+            builder.append('-');
+
+        long fraction = hundredths % 100;
+        return builder.append(hundredths / 100)
+                .append(DECIMAL_SEPARATOR)
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10));
+    }
+}
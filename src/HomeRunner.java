@@ -0,0 +1,169 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the command streams of many homes concurrently, every home on a thread of its own with its own devices, clock and output.<br><br>
+ * On Java 21 and later every home gets a virtual thread, so a huge number of mostly idle homes (e.g. fed from slow streaming sources)
+ * does not need a platform thread each. On older versions a fixed pool of platform threads, as large as the concurrency limit, is used instead.<br><br>
+ * The number of homes that are processed at the same time is capped with a limiter, the other homes wait for their turn without holding a source open.
+ * The number of homes in flight, the finished homes and the command throughput can be read while the homes are running.
+ */
+public class HomeRunner implements AutoCloseable {
+
+    /**
+     * Opens the command lines of a home when the home gets its turn.
+     */
+    public interface SourceOpener {
+        /**
+         * @return the command lines of the home, null if they cannot be opened, which counts the home as failed
+         */
+        LineSource open();
+    }
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore limiter;
+
+    private final AtomicInteger inFlightHomes = new AtomicInteger();
+    private final AtomicLong finishedHomes = new AtomicLong();
+    private final AtomicLong failedHomes = new AtomicLong();
+    //counted by the homes after every command, so that the throughput of long-running homes is seen while they run
+    private final LongAdder processedCommands = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param maxConcurrentHomes the maximum number of homes that are processed at the same time
+     */
+    public HomeRunner(int maxConcurrentHomes) {
+        int limit = Math.max(1, maxConcurrentHomes);
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+
+        virtualThreads = virtualExecutor != null;
+        executor = virtualThreads ? virtualExecutor : Executors.newFixedThreadPool(limit);
+        limiter = new Semaphore(limit);
+    }
+
+    /**
+     * Runs a home with the command lines of the given source, writing its output to the given file.
+     *
+     * @param opener     opens the command lines of the home once the home gets its turn
+     * @param outputPath path of the output file of the home
+     * @return a future that is completed when the home is finished
+     */
+    public Future<?> submit(SourceOpener opener, String outputPath) {
+        return executor.submit(() -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            inFlightHomes.incrementAndGet();
+            try {
+                LineSource lines = opener.open();
+                if (lines == null)
+                    failedHomes.incrementAndGet();
+                else
+                    new SmartHome().run(lines, outputPath, processedCommands);
+            } catch (RuntimeException e) {
+                // a failing home does not stop the others
+                failedHomes.incrementAndGet();
+                e.printStackTrace();
+            } finally {
+                inFlightHomes.decrementAndGet();
+                finishedHomes.incrementAndGet();
+                limiter.release();
+            }
+        });
+    }
+
+    /**
+     * Runs a home with the commands of the given file, writing its output to the given file.
+     *
+     * @param inputPath  path of the command file of the home
+     * @param outputPath path of the output file of the home
+     * @return a future that is completed when the home is finished
+     */
+    public Future<?> submit(String inputPath, String outputPath) {
+        return submit(() -> Main.read(inputPath), outputPath);
+    }
+
+    /**
+     * @return true if every home runs on a virtual thread, false if a pool of platform threads is used
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return the number of homes that are being processed right now
+     */
+    public int getInFlightHomes() {
+        return inFlightHomes.get();
+    }
+
+    /**
+     * @return the number of homes that are finished, the failed ones included
+     */
+    public long getFinishedHomes() {
+        return finishedHomes.get();
+    }
+
+    /**
+     * @return the number of homes that have failed with an exception, or whose commands could not be opened
+     */
+    public long getFailedHomes() {
+        return failedHomes.get();
+    }
+
+    /**
+     * @return the number of command lines that are processed until now, by the finished homes and the homes that are still running
+     */
+    public long getProcessedCommands() {
+        return processedCommands.sum();
+    }
+
+    /**
+     * @return the number of command lines that are processed per second, since the runner was created
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? processedCommands.sum() / seconds : 0;
+    }
+
+    /**
+     * Waits until all the submitted homes are finished, no new homes can be submitted afterwards.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread for every task, looked up by reflection so that the program still runs on older versions.
+     *
+     * @return the executor, null if virtual threads are not available
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Thrown when an argument of a command is not valid, e.g. a value out of range, with the error message that is written to the output.<br><br>
+ * Command errors are expected and only their message is used, so it skips filling in a stack trace.
+ */
+public class InvalidArgumentException extends IllegalArgumentException {
+    public InvalidArgumentException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
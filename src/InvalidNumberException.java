@@ -0,0 +1,13 @@
+/**
+ * Thrown when an argument of a command cannot be parsed as a number, where a NumberFormatException used to be thrown.
+ */
+public class InvalidNumberException extends NumberFormatException {
+    public InvalidNumberException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
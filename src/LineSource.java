@@ -0,0 +1,16 @@
+/**
+ * A source that hands out the lines of a command file one by one, so that the whole file never has to be kept in memory.
+ */
+public interface LineSource extends AutoCloseable {
+    /**
+     * @return the next line of the source, null if there are no more lines.
+     * @throws java.io.UncheckedIOException if the source cannot be read, which is not the same as its end
+     */
+    String nextLine();
+
+    /**
+     * Releases the underlying file, does not throw checked exceptions.
+     */
+    @Override
+    void close();
+}
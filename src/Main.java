@@ -1,23 +1,42 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.LongAdder;
+
 public class Main {
-    public static String inpFile;
-    public static String outFile;
+    //text command files are read through a memory mapping if -Dinput.mapped=true is given
+    private static final boolean MAPPED_INPUT = Boolean.getBoolean("input.mapped");
 
     /**
-     * reads the input file and returns the lines of the file as an array of strings
+     * opens the input file and returns a source that gives the trimmed, non-empty lines of the file one by one<br><br>
+     * A command file that is compiled by the CommandCompiler is recognized from its first bytes and read with a BinaryLineSource.
+     * A text command file is read through a memory mapping if -Dinput.mapped=true is given, which is faster for very large files.
      *
      * @param name the name of the input file
-     * @return the lines of the input file as an array of strings
+     * @return the lines of the input file as a LineSource, null if the file cannot be opened
      */
-    public static String[] read(String name) {
-        return FileInput.readFile(name, true, true);
+    public static LineSource read(String name) {
+        if (BinaryLineSource.isCompiled(name)) {
+            try {
+                return new BinaryLineSource(name);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        if (MAPPED_INPUT)
+            return FileInput.openMappedFile(name, true, true);
+
+        return FileInput.openFile(name, true, true);
     }
 
     /**
      * Checks if the first line of the command is "SetInitialTime" and sets the initial time.<br><br>
-     * If the first line is not "SetInitialTime" or is not in right command format, throws an error and terminates the program.<br><br>
+     * If the first line is not "SetInitialTime" or is not in right command format, writes an error and terminates the processing of the command file.<br><br>
      * Also, writes the first line to the output file, which does not append to the file but overwrites it, so that, whenever the program is run, the output file gets overwritten.<br><br>
      *
      * @param firstLine the first line of the command file
+     * @throws TerminationException if the first command is not a correct SetInitialTime
      */
     public static void checkStartingCommand(String firstLine) {
         FileOutput.write(("COMMAND: " + firstLine), false);
@@ -28,168 +47,121 @@ public class Main {
         // if the first line is not "SetInitialTime", or number of arguments is incorrect, throw an error and terminate the program
         if (!firstCommand.equals("SetInitialTime") || args.length != 2) {
             write("ERROR: First command must be set initial time! Program is going to terminate!");
-            System.exit(0);
+            throw new TerminationException();
         }
 
         // set the initial time
         else
-            Time.setInitialTime(firstLine);
+            Time.setInitialTime(args[1]);
 
     }
 
     /**
-     * Splits the command line into arguments and calls the appropriate methods for the commands.
+     * Reads the command file line by line and passes each command to the CommandDispatcher, which executes it on the current SmartHome.
+     *
+     * @param inputPath the path of the command file
+     * @throws TerminationException if the commands cannot be processed any further, the rest of the file is skipped
      */
-    public static void manageCommands() {
-        String[] lines = read(inpFile);
-
-        checkStartingCommand(lines[0]);
-
-        for (int i = 1; i < lines.length; i++) {
-            String line = lines[i];
-
-            //arguments of the current line
-            String[] args = line.split("\t");
-
-            // command keyword of the current line
-            String command = args[0];
-
-            write(("COMMAND: " + line));
-
-            /* General SmartDevice Commands */
-            // Add commands for every device type
-            if (command.equals("Add")) {
-                String deviceType = line.split("\t")[1];
-                switch (deviceType) {
-                    case "SmartCamera":
-                        SmartCamera.addSmartCamera(line);
-                        break;
-                    case "SmartLamp":
-                        SmartLamp.addSmartLamp(line);
-                        break;
-                    case "SmartColorLamp":
-                        SmartColorLamp.addSmartColorLamp(line);
-                        break;
-                    case "SmartPlug":
-                        SmartPlug.addSmartPlug(line);
-                        break;
-                    default:
-                        write("ERROR: Erroneous command!");
-                        break;
-                }
-            } else if (command.equals("Remove")) {
-                if (args.length != 2) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
+    public static void manageCommands(String inputPath) {
+        LineSource lines = read(inputPath);
+        if (lines == null)
+            return;
 
-                SmartDevice.removeDevice(line);
-            } else if (command.equals("ChangeName")) {
-                if (args.length != 3) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartDevice.changeName(line);
-            } else if (command.equals("Switch")) {
-                if (args.length != 3) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartDevice.switchNow(line);
-            } else if (command.equals("ZReport")) {
-                if (args.length != 1) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartDevice.displayZReport();
-            }
+        manageCommands(lines);
+    }
 
-            /* Time Manipulation Commands */
-            else if (command.equals("Nop")) {
-                if (args.length != 1) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartDevice.nop();
-            } else if (command.equals("SetTime")) {
-                if (args.length != 2) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                Time.setCurrentTime(line);
-            } else if (command.equals("SkipMinutes")) {
-                if (args.length != 2) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                Time.skipMinutes(line);
-            } else if (command.equals("SetSwitchTime")) {
-                if (args.length != 3) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartDevice.switchLater(line);
+    /**
+     * Drives a home with the commands of the given source: takes the lines one by one and passes each command to the CommandDispatcher,
+     * which executes it on the current SmartHome. The source can be a file or any other stream of command lines.<br><br>
+     * If the home has a CommandJournal, the home is first recovered from it and every processed command is passed to it.<br><br>
+     * If -Dmetrics.file is given, every command is dispatched through CommandMetrics, which records its latency and errors.
+     *
+     * @param lines the trimmed, non-empty command lines, closed when all of them are processed
+     * @return the number of command lines that are processed
+     * @throws TerminationException if the commands cannot be processed any further, the rest of the lines are skipped
+     */
+    public static int manageCommands(LineSource lines) {
+        return manageCommands(lines, null);
+    }
+
+    /**
+     * Drives a home like manageCommands(lines), and also counts every command in the given counter as soon as it is processed,
+     * so that the commands of a long-running home can be counted while it is running, e.g. by a HomeRunner.
+     *
+     * @param lines             the trimmed, non-empty command lines, closed when all of them are processed
+     * @param processedCommands the counter of the processed commands, shared by many homes, null if they are not counted
+     * @return the number of command lines that are processed
+     * @throws TerminationException if the commands cannot be processed any further, the rest of the lines are skipped
+     */
+    public static int manageCommands(LineSource lines, LongAdder processedCommands) {
+        SmartHome home = SmartHome.current();
+        CommandJournal journal = home.journal;
+        int commandCount = 0;
+
+        // the whole file is not kept in memory, so the last non-empty line is tracked to check whether the last command is ZReport
+        String lastLine = null;
+        try {
+            if (journal != null) {
+                lines = journal.recover(home, lines);
+                lastLine = journal.getLastLine();
             }
 
-            /* SmartPlug Commands */
-            else if (command.equals("PlugIn")) {
-                if (args.length != 3) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartPlug.plugIn(line);
-            } else if (command.equals("PlugOut")) {
-                if (args.length != 2) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
+            // the first command is already processed if the home is recovered from a checkpoint
+            if (lastLine == null) {
+                String firstLine = lines.nextLine();
+                if (firstLine == null)
+                    return commandCount;
 
-                SmartPlug.plugOut(line);
+                checkStartingCommand(firstLine);
+                commandCount++;
+                if (processedCommands != null)
+                    processedCommands.increment();
+                lastLine = firstLine;
 
+                if (journal != null)
+                    journal.commandProcessed(firstLine);
             }
 
-            /* SmartLamp - SmartColorLamp Commands */
-            else if (command.equals("SetKelvin")) {
-                if (args.length != 3) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
+            String line;
+            while ((line = lines.nextLine()) != null) {
+                lastLine = line;
 
-                SmartLamp.changeKelvin(line);
-            } else if (command.equals("SetBrightness")) {
-                if (args.length != 3) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
+                write(("COMMAND: " + line));
 
-                SmartLamp.changeBrightness(line);
-            } else if (command.equals("SetWhite")) {
-                if (args.length != 4) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartLamp.changeWhite(line);
-            } else if (command.equals("SetColorCode")) {
-                if (args.length != 3) {
-                    write("ERROR: Erroneous command!");
-                    continue;
-                }
-                SmartColorLamp.changeColorCode(line);
-            } else if (command.equals("SetColor")) {
-                if (args.length != 4) {
-                    write("ERROR: Erroneous command!");
-                    continue;
+                SimulationEvents.CommandDispatch event = SimulationEvents.isRecording() ? SimulationEvents.begin(new SimulationEvents.CommandDispatch()) : null;
+                int commandId = CommandMetrics.ENABLED ? CommandMetrics.dispatch(home, line) : CommandDispatcher.dispatch(line);
+                if (SimulationEvents.end(event)) {
+                    event.keyword = CommandDispatcher.keyword(commandId);
+                    event.command = line;
+                    event.commit();
                 }
-                SmartColorLamp.changeColor(line);
-            }
+                commandCount++;
+                if (processedCommands != null)
+                    processedCommands.increment();
 
-            //Not recognized command
-            else {
-                write("ERROR: Erroneous command!");
+                if (journal != null)
+                    journal.commandProcessed(line);
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (TerminationException e) {
+            // a terminated run is not recovered either, it is started from zero
+            if (journal != null)
+                journal.complete();
+            throw e;
+        } finally {
+            lines.close();
+            if (journal != null)
+                journal.close();
         }
 
-        checkFinishingCommand(lines[lines.length - 1]);
+        checkFinishingCommand(lastLine);
+
+        // all the commands are processed, there is nothing to recover anymore
+        if (journal != null)
+            journal.complete();
+
+        return commandCount;
     }
 
     /**
@@ -216,9 +188,24 @@ public class Main {
     }
 
     public static void main(String[] args) {
-        inpFile = args[0];
-        outFile = args[1];
-        manageCommands();
+        String inpFile = args[0];
+        String outFile = args[1];
+
+        // the commands are executed on the default home, whose output file is opened once and kept open
+        FileOutput.open(outFile);
+
+        // the home can be recovered after a crash if a checkpoint directory is given with -Dcheckpoint.dir
+        String checkpointDirectory = System.getProperty("checkpoint.dir");
+        if (checkpointDirectory != null)
+            SmartHome.getDefault().journal = new CommandJournal(checkpointDirectory, inpFile, CommandJournal.defaultInterval);
+
+        try {
+            manageCommands(inpFile);
+        } catch (TerminationException e) {
+            // the reason is already written to the output file, nothing else is done after the commands are terminated
+        } finally {
+            FileOutput.close();
+        }
 
     }// end of main method
 
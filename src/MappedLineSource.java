@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A LineSource that reads the file through a memory mapping, instead of through a stream, a charset decoder and a BufferedReader.<br><br>
+ * A mapping cannot be larger than 2 GB, so the file is mapped chunk by chunk. The bytes are copied from the mapping into a small window in blocks,
+ * the line breaks are searched in the window 8 bytes at a time, and the lines are trimmed and discarded if empty as bytes,
+ * so that a string is only created for a line that is handed out. A line of only ASCII characters is copied into its string as it is, other lines are decoded as UTF-8.<br><br>
+ * Lines end with "\n", "\r" or "\r\n", and trimming removes the same characters as String.trim, so the lines are the same as the lines of a BufferedLineSource.
+ * The mappings are released by the garbage collector, after the source is closed.
+ */
+public class MappedLineSource implements LineSource {
+    //size of a mapped chunk, the last chunk of the file is smaller
+    static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private static final int WINDOW_SIZE = 64 * 1024;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LINE_FEEDS = ONES * '\n';
+    private static final long CARRIAGE_RETURNS = ONES * '\r';
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int chunkSize;
+    private final boolean discardEmptyLines;
+    private final boolean trim;
+
+    private MappedByteBuffer chunk;
+    //position of the chunk in the file
+    private long chunkStart = 0;
+
+    //bytes of the file that are copied from the mapping, the lines are read from here
+    private byte[] window = new byte[WINDOW_SIZE];
+    private int windowPosition = 0;
+    private int windowLimit = 0;
+    //true if the last line ended with "\r", so that a "\n" following it does not give an empty line
+    private boolean skipLineFeed = false;
+
+    /**
+     * Opens and maps the file at the given path for reading.
+     *
+     * @param path              Path to the file that is going to be read.
+     * @param discardEmptyLines If true, discards empty lines with respect to trim; else, it takes all the lines from the file.
+     * @param trim              Trim status; if true, trims each line; else, it leaves each line as-is.
+     * @throws IOException if there is no such a file or it cannot be mapped
+     */
+    public MappedLineSource(String path, boolean discardEmptyLines, boolean trim) throws IOException {
+        this(path, discardEmptyLines, trim, DEFAULT_CHUNK_SIZE);
+    }
+
+    MappedLineSource(String path, boolean discardEmptyLines, boolean trim, int chunkSize) throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.chunkSize = chunkSize;
+        this.discardEmptyLines = discardEmptyLines;
+        this.trim = trim;
+
+        try {
+            map(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the next line of the file (trimmed and non-empty if requested), null if the end of file is reached.
+     * @throws UncheckedIOException if the file cannot be read anymore or a line is not valid UTF-8, as with a BufferedLineSource
+     */
+    @Override
+    public String nextLine() {
+        try {
+            while (true) {
+                if (windowPosition == windowLimit && !fill())
+                    return null;
+
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (window[windowPosition] == '\n' && ++windowPosition == windowLimit && !fill())
+                        return null;
+                }
+
+                int end = findLineEnd(windowPosition);
+
+                // the line goes on after the window, so the rest of the line is copied from the mapping
+                while (end < 0) {
+                    int searched = windowLimit - windowPosition;
+                    if (!fill()) {
+                        // the last line of the file has no line break
+                        end = windowLimit;
+                        break;
+                    }
+                    end = findLineEnd(searched);
+                }
+
+                int start = windowPosition;
+                if (end < windowLimit) {
+                    skipLineFeed = window[end] == '\r';
+                    windowPosition = end + 1;
+                } else {
+                    windowPosition = end;
+                }
+
+                int first = start;
+                int last = end;
+                if (trim || discardEmptyLines) {
+                    while (first < last && (window[first] & 0xFF) <= ' ')
+                        first++;
+                    while (last > first && (window[last - 1] & 0xFF) <= ' ')
+                        last--;
+                }
+
+                if (discardEmptyLines && first == last)
+                    continue;
+
+                return trim ? decode(first, last) : decode(start, end);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        chunk = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the index of the "\n" or "\r" in the window from the given index on, -1 if there is none
+     */
+    private int findLineEnd(int from) {
+        int i = from;
+
+        // 8 bytes are checked at once: a byte of the word is zero after the xor if it is a line break,
+        // and the lowest zero byte is found with the usual (x - 0x01..) & ~x & 0x80.. trick, the word is little endian so the lowest byte comes first
+        for (; i + 8 <= windowLimit; i += 8) {
+            long word = (long) LONG_VIEW.get(window, i);
+            long lineFeeds = word ^ LINE_FEEDS;
+            long carriageReturns = word ^ CARRIAGE_RETURNS;
+            long found = ((lineFeeds - ONES) & ~lineFeeds | (carriageReturns - ONES) & ~carriageReturns) & HIGH_BITS;
+
+            if (found != 0)
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+
+        for (; i < windowLimit; i++) {
+            byte b = window[i];
+            if (b == '\n' || b == '\r')
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Moves the unread bytes to the start of the window, growing it if it is full, and copies the next bytes of the file after them.
+     *
+     * @return false if the end of file is reached
+     */
+    private boolean fill() throws IOException {
+        int unread = windowLimit - windowPosition;
+        if (unread == window.length) {
+            if (window.length == Integer.MAX_VALUE - 8)
+                throw new IOException("Line is longer than 2 GB");
+
+            byte[] larger = new byte[(int) Math.min((long) window.length * 2, Integer.MAX_VALUE - 8)];
+            System.arraycopy(window, windowPosition, larger, 0, unread);
+            window = larger;
+        } else {
+            System.arraycopy(window, windowPosition, window, 0, unread);
+        }
+        windowPosition = 0;
+        windowLimit = unread;
+
+        if (!chunk.hasRemaining()) {
+            long next = chunkStart + chunk.limit();
+            if (next >= fileSize)
+                return false;
+
+            map(next);
+        }
+
+        int count = Math.min(window.length - unread, chunk.remaining());
+        chunk.get(window, unread, count);
+        windowLimit += count;
+        return true;
+    }
+
+    /**
+     * Maps the chunk of the file that starts at the given position.
+     */
+    private void map(long start) throws IOException {
+        chunkStart = start;
+        chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, fileSize - start));
+    }
+
+    /**
+     * Creates the string of the bytes between the given indexes of the window.
+     */
+    private String decode(int from, int to) throws CharacterCodingException {
+        for (int i = from; i < to; i++) {
+            // an invalid UTF-8 line is reported, as a BufferedReader does
+            if (window[i] < 0)
+                return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(window, from, to - from)).toString();
+        }
+
+        // ASCII bytes are the same characters in ISO-8859-1, which are copied into the string without decoding
+        return new String(window, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
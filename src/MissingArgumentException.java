@@ -0,0 +1,13 @@
+/**
+ * Thrown when a command does not have an argument that is asked for, where an ArrayIndexOutOfBoundsException used to be thrown.
+ */
+public class MissingArgumentException extends ArrayIndexOutOfBoundsException {
+    public MissingArgumentException(int index) {
+        super(index);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Keeps every device as an object of its own: ordered by the SwitchScheduler, and indexed by name in a hash map, so that lookups by name do not scan them.<br><br>
+ * This is the store of a home unless -Ddevices.columnar=true is given.
+ */
+public class ObjectDeviceStore implements DeviceStore {
+    //devices ordered by their switch times, the order they are displayed in the Z-Report
+    private final SwitchScheduler scheduler = new SwitchScheduler();
+    //name -> device index kept alongside the ordered devices
+    private final HashMap<String, SmartDevice> index = new HashMap<>();
+
+    @Override
+    public SmartDevice get(String deviceName) {
+        return index.get(deviceName);
+    }
+
+    @Override
+    public boolean contains(String deviceName) {
+        return index.containsKey(deviceName);
+    }
+
+    @Override
+    public void add(SmartDevice smartDevice) {
+        scheduler.add(smartDevice);
+        index.put(smartDevice.deviceName, smartDevice);
+    }
+
+    @Override
+    public void remove(SmartDevice smartDevice) {
+        scheduler.remove(smartDevice);
+        index.remove(smartDevice.deviceName);
+    }
+
+    @Override
+    public void rename(SmartDevice smartDevice, String newName) {
+        index.remove(smartDevice.deviceName);
+        smartDevice.deviceName = newName;
+        smartDevice.markDirty();
+        index.put(newName, smartDevice);
+    }
+
+    @Override
+    public void setSwitchTime(SmartDevice smartDevice, long switchTime) {
+        scheduler.setSwitchTime(smartDevice, switchTime);
+    }
+
+    @Override
+    public ArrayList<SmartDevice> pollDue(long currentTime) {
+        return scheduler.pollDue(currentTime);
+    }
+
+    @Override
+    public void restore(SmartDevice smartDevice, long switchTime, long scheduleOrder) {
+        scheduler.restore(smartDevice, switchTime, scheduleOrder);
+        index.put(smartDevice.deviceName, smartDevice);
+    }
+
+    @Override
+    public long getFrontOrder() {
+        return scheduler.getFrontOrder();
+    }
+
+    @Override
+    public long getBackOrder() {
+        return scheduler.getBackOrder();
+    }
+
+    @Override
+    public void restoreOrders(long frontOrder, long backOrder) {
+        scheduler.restoreOrders(frontOrder, backOrder);
+    }
+
+    @Override
+    public long firstSwitchTime() {
+        SmartDevice first = scheduler.first();
+        return first == null ? Time.NONE : first.switchTime;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return scheduler.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return scheduler.size();
+    }
+
+    @Override
+    public int pendingSwitches() {
+        return scheduler.pendingSwitches();
+    }
+
+    @Override
+    public Iterator<SmartDevice> iterator() {
+        return scheduler.iterator();
+    }
+}
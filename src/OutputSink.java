@@ -0,0 +1,137 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * A long-lived, buffered output file that is opened once and kept open while the commands are processed.<br><br>
+ * Content is collected in a buffer and written to the file when the buffer is full or when the flush policy says so,
+ * instead of opening and closing the file for every single line.
+ */
+public class OutputSink {
+
+    /**
+     * Decides when the buffered content is pushed to the file.
+     */
+    public enum FlushPolicy {
+        /** Flushes after every line, same durability as opening the file for every line. */
+        EVERY_LINE,
+        /** Flushes whenever a ZReport is completed (and when the sink is closed). */
+        ZREPORT,
+        /** Flushes only when the buffer is full and when the sink is closed. */
+        EXIT
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    protected final String path;
+    protected final int bufferSize;
+    protected final FlushPolicy flushPolicy;
+    private Writer writer = null;
+
+    /**
+     * Creates a sink for the file at the given path. The file itself is opened with the first write.
+     *
+     * @param path        Path for the file content is going to be written.
+     * @param bufferSize  Size of the buffer in characters.
+     * @param flushPolicy When the buffer is going to be flushed to the file.
+     */
+    public OutputSink(String path, int bufferSize, FlushPolicy flushPolicy) {
+        this.path = path;
+        this.bufferSize = bufferSize;
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Writes the given content to the file.<br><br>
+     * If append is false, the file is truncated before writing, just like creating the file from zero.
+     *
+     * @param content Content that is going to be written to file.
+     * @param append  True to append to the file, false to overwrite it.
+     * @param newLine True to add a new line after the given content.
+     */
+    public synchronized void write(String content, boolean append, boolean newLine) {
+        try {
+            if (writer == null || !append)
+                open(append);
+
+            writer.write(content);
+            if (newLine)
+                writer.write('\n');
+
+            if (flushPolicy == FlushPolicy.EVERY_LINE)
+                writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Marks the end of a ZReport, flushes the buffer unless the policy is to flush only at exit.
+     */
+    public synchronized void reportBoundary() {
+        if (flushPolicy != FlushPolicy.EXIT)
+            flush();
+    }
+
+    /**
+     * Pushes all the buffered content to the file.
+     */
+    public synchronized void flush() {
+        if (writer == null)
+            return;
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Flushes all the buffered content and closes the file. A later write opens the file again in append mode.
+     */
+    public synchronized void close() {
+        if (writer == null)
+            return;
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            writer = null;
+        }
+    }
+
+    /**
+     * Flushes the buffered content and returns the length of the file, which is where the next content is going to be written.
+     *
+     * @return the length of the file in bytes, 0 if it does not exist yet
+     */
+    public synchronized long length() {
+        flush();
+        return new File(path).length();
+    }
+
+    /**
+     * @return the path of the file this sink writes to
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Closes the current file (if any) and opens it again, either in append mode or by creating the file from zero.
+     *
+     * @param append True to append to the file, false to overwrite it.
+     * @throws FileNotFoundException if the file cannot be opened for writing
+     */
+    private void open(boolean append) throws FileNotFoundException {
+        close();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path, append)), bufferSize);
+    }
+}
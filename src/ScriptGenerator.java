@@ -0,0 +1,403 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Generates a command script of any size for load tests, in the tab separated format of the command files, deterministically from a seed.<br><br>
+ * The script starts with SetInitialTime and an Add for every device (plugs, cameras, lamps and color lamps in turn), followed by a mix of
+ * Switch commands, bursts of SetSwitchTime, PlugIn/PlugOut churn, SetColor, SetWhite, SetKelvin and SetBrightness changes,
+ * SkipMinutes, SetTime and Nop commands that move the clock over the given time span, and an occasional ZReport.<br><br>
+ * The generator keeps a small model of the home (the clock, the status, the pending switch time and the plug of every device),
+ * so the commands are valid when they are processed: a device is switched to the status it is not in, a switch time is never in the past,
+ * only empty plugs are plugged in, and so on. A given ratio of the commands is replaced with erroneous ones instead, each of which
+ * gives exactly one error and changes nothing, e.g. an unknown device, a value out of range or a switch time in the past.<br><br>
+ * The generator is a LineSource, so a home can run the script without a file, and the script can be written to a file of any size, as it is generated line by line.<br><br>
+ * Usage: java ScriptGenerator outputFile commandCount [deviceCount [errorRatio [timeSpanMinutes [seed]]]]
+ */
+public class ScriptGenerator implements LineSource {
+    public static final String INITIAL_TIME = "2023-01-01_00:00:00";
+    //a week by default
+    public static final long DEFAULT_TIME_SPAN = 7 * 24 * 60;
+    public static final long DEFAULT_SEED = 1;
+
+    private static final String[] DEVICE_TYPES = {"SmartPlug", "SmartCamera", "SmartLamp", "SmartColorLamp"};
+    private static final int PLUG = 0;
+    private static final int CAMERA = 1;
+    private static final int LAMP = 2;
+    private static final int COLOR_LAMP = 3;
+
+    private final int deviceCount;
+    private final long commandCount;
+    private final double errorRatio;
+    private final Random random;
+
+    private final long initialTime;
+    private final long timeSpan;
+    //switch times of a burst are at most this many minutes later than the current time
+    private final long switchWindow;
+
+    //the model of the home
+    private long currentTime;
+    private final boolean[] on;
+    private final boolean[] plugged;
+    private final long[] switchTimes;
+    //pending switches as {time, device}, an entry is out of date if the device has another switch time by then
+    private final PriorityQueue<long[]> pendingSwitches = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+    private final ArrayDeque<String> burst = new ArrayDeque<>();
+    private final StringBuilder line = new StringBuilder(64);
+    private long generated = 0;
+    private long erroneous = 0;
+
+    /**
+     * @param deviceCount     the number of devices, at least 1
+     * @param commandCount    the number of command lines, SetInitialTime and the Add commands included
+     * @param errorRatio      the ratio of the commands after the Add commands that are erroneous, from 0 to 1
+     * @param timeSpanMinutes the number of minutes the clock roughly moves over the script
+     * @param seed            the seed of the random numbers, the same seed gives the same script
+     */
+    public ScriptGenerator(int deviceCount, long commandCount, double errorRatio, long timeSpanMinutes, long seed) {
+        this.deviceCount = Math.max(1, deviceCount);
+        this.commandCount = commandCount;
+        this.errorRatio = Math.min(1, Math.max(0, errorRatio));
+        this.random = new Random(seed);
+
+        this.initialTime = Time.parseTime(INITIAL_TIME);
+        this.timeSpan = Math.max(1, timeSpanMinutes);
+        // the clock moves about once in ten commands, a switch time is up to a hundred commands ahead
+        this.switchWindow = Math.max(2, timeSpan * 100 / Math.max(1, commandCount));
+
+        this.currentTime = initialTime;
+        this.on = new boolean[this.deviceCount];
+        this.plugged = new boolean[this.deviceCount];
+        this.switchTimes = new long[this.deviceCount];
+        Arrays.fill(switchTimes, Time.NONE);
+    }
+
+    /**
+     * @return the next command line of the script, null if the script is complete
+     */
+    @Override
+    public String nextLine() {
+        if (generated >= commandCount)
+            return null;
+
+        String command;
+        if (generated == 0)
+            command = "SetInitialTime\t" + INITIAL_TIME;
+        else if (generated <= deviceCount)
+            command = addCommand((int) generated - 1);
+        else if (!burst.isEmpty())
+            command = burst.poll();
+        else if (random.nextDouble() < errorRatio) {
+            command = erroneousCommand();
+            erroneous++;
+        } else
+            command = validCommand(random.nextInt(100));
+
+        generated++;
+        return command;
+    }
+
+    @Override
+    public void close() {
+        burst.clear();
+    }
+
+    /**
+     * @return the number of erroneous commands that are generated until now
+     */
+    public long getErroneousCount() {
+        return erroneous;
+    }
+
+    /**
+     * Writes the whole script to the given writer.
+     *
+     * @param writer the writer the lines are written to, each followed by a new line
+     * @return the number of lines that are written
+     * @throws IOException if the writer fails
+     */
+    public long writeTo(Writer writer) throws IOException {
+        long count = 0;
+        String command;
+
+        while ((command = nextLine()) != null) {
+            writer.write(command);
+            writer.write('\n');
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the name of the i-th device
+     */
+    static String deviceName(int device) {
+        return "Device " + device;
+    }
+
+    /**
+     * The Add command of the i-th device, with its optional arguments given or not at random.
+     */
+    private String addCommand(int device) {
+        int type = device % DEVICE_TYPES.length;
+        on[device] = random.nextBoolean();
+
+        line.setLength(0);
+        line.append("Add\t").append(DEVICE_TYPES[type]).append('\t').append(deviceName(device));
+
+        switch (type) {
+            case PLUG:
+                line.append('\t').append(status(on[device]));
+                if (random.nextBoolean()) {
+                    line.append('\t').append(1 + random.nextInt(15));
+                    plugged[device] = true;
+                }
+                break;
+            case CAMERA:
+                line.append('\t').append(1 + random.nextInt(10)).append('.').append(random.nextInt(10)).append('\t').append(status(on[device]));
+                break;
+            case LAMP:
+                line.append('\t').append(status(on[device]));
+                if (random.nextBoolean())
+                    line.append('\t').append(kelvin()).append('\t').append(brightness());
+                break;
+            default:
+                line.append('\t').append(status(on[device]));
+                int arguments = random.nextInt(3);
+                if (arguments == 1)
+                    line.append('\t').append(kelvin()).append('\t').append(brightness());
+                else if (arguments == 2)
+                    line.append('\t').append(colorCode()).append('\t').append(brightness());
+                break;
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * A command that is processed without an error, applied to the model of the home.
+     *
+     * @param kind a number from 0 to 99 that chooses the kind of the command
+     */
+    private String validCommand(int kind) {
+        if (kind < 15)
+            return switchCommand(randomDevice());
+        if (kind < 30)
+            return switchTimeBurst();
+        if (kind < 45)
+            return plugChurn();
+        if (kind < 56)
+            return lampCommand("SetColor", COLOR_LAMP, colorCode() + "\t" + brightness());
+        if (kind < 64)
+            return lampCommand("SetWhite", random.nextBoolean() ? LAMP : COLOR_LAMP, kelvin() + "\t" + brightness());
+        if (kind < 68)
+            return lampCommand("SetKelvin", random.nextBoolean() ? LAMP : COLOR_LAMP, Integer.toString(kelvin()));
+        if (kind < 72)
+            return lampCommand("SetBrightness", random.nextBoolean() ? LAMP : COLOR_LAMP, Integer.toString(brightness()));
+        if (kind < 99)
+            return clockCommand(kind);
+
+        return "ZReport";
+    }
+
+    /**
+     * A command that gives a single error and changes nothing in the home.
+     */
+    private String erroneousCommand() {
+        int device = randomDevice();
+
+        switch (random.nextInt(10)) {
+            case 0:
+                return "Switch\t" + deviceName(deviceCount + random.nextInt(1000)) + "\tOn";
+            case 1:
+                // a command of a device type that the device is not
+                return "SetColor\t" + deviceName(deviceOfType(random.nextBoolean() ? PLUG : CAMERA, device)) + "\t" + colorCode() + "\t" + brightness();
+            case 2:
+                return "SetKelvin\t" + deviceName(deviceOfType(LAMP, device)) + "\t" + (6501 + random.nextInt(5000));
+            case 3:
+                return "SetBrightness\t" + deviceName(deviceOfType(COLOR_LAMP, device)) + "\t" + (101 + random.nextInt(100));
+            case 4:
+                return "SetSwitchTime\t" + deviceName(device) + "\t" + Time.format(currentTime - 60 * (1 + nextLong(switchWindow)));
+            case 5:
+                return "Switch\t" + deviceName(device) + "\t" + status(on[device]);
+            case 6:
+                return "Switch\t" + deviceName(device);
+            case 7:
+                return "SkipMinutes\t0";
+            case 8:
+                return "SetTime\t" + Time.format(currentTime);
+            default:
+                return "Add\t" + DEVICE_TYPES[device % DEVICE_TYPES.length] + "\t" + deviceName(device) + "\tOn";
+        }
+    }
+
+    private String switchCommand(int device) {
+        on[device] = !on[device];
+        switchTimes[device] = Time.NONE;
+        return "Switch\t" + deviceName(device) + "\t" + status(on[device]);
+    }
+
+    /**
+     * A SetSwitchTime for a few devices at once, the first one is returned and the others are given as the next commands.
+     */
+    private String switchTimeBurst() {
+        int size = 1 + random.nextInt(4);
+
+        for (int i = 0; i < size; i++) {
+            int device = randomDevice();
+            long switchTime = currentTime + 60 * (1 + nextLong(switchWindow));
+
+            switchTimes[device] = switchTime;
+            pendingSwitches.add(new long[]{switchTime, device});
+            burst.add("SetSwitchTime\t" + deviceName(device) + "\t" + Time.format(switchTime));
+        }
+
+        return burst.poll();
+    }
+
+    /**
+     * Plugs an item into an empty plug, or plugs it out of a plug that has one.
+     */
+    private String plugChurn() {
+        int plug = deviceOfType(PLUG, randomDevice());
+        if (plug % DEVICE_TYPES.length != PLUG)
+            return switchCommand(plug);
+
+        plugged[plug] = !plugged[plug];
+        if (plugged[plug])
+            return "PlugIn\t" + deviceName(plug) + "\t" + (1 + random.nextInt(15)) + "." + random.nextInt(10);
+
+        return "PlugOut\t" + deviceName(plug);
+    }
+
+    private String lampCommand(String keyword, int type, String arguments) {
+        int lamp = deviceOfType(type, randomDevice());
+        if (lamp % DEVICE_TYPES.length != type)
+            return switchCommand(lamp);
+
+        return keyword + "\t" + deviceName(lamp) + "\t" + arguments;
+    }
+
+    /**
+     * Moves the clock by a SkipMinutes, a SetTime or a Nop, so that it follows the time span over the script.
+     * If the clock is already ahead, another kind of command is given instead.
+     */
+    private String clockCommand(int kind) {
+        long targetTime = initialTime + (long) (timeSpan * 60.0 * generated / commandCount);
+        long firstSwitch = firstPendingSwitch();
+
+        if (kind >= 86 && firstSwitch != Time.NONE && firstSwitch <= targetTime) {
+            advanceTo(firstSwitch);
+            return "Nop";
+        }
+
+        long minutesBehind = (targetTime - currentTime) / 60;
+        if (minutesBehind < 1)
+            return validCommand(random.nextInt(72));
+
+        long minutes = 1 + nextLong(2 * minutesBehind);
+        if (kind < 84)
+            return skipMinutes(minutes);
+
+        return setTime(currentTime + 60 * minutes);
+    }
+
+    private String skipMinutes(long minutes) {
+        advanceTo(currentTime + 60 * minutes);
+        return "SkipMinutes\t" + minutes;
+    }
+
+    private String setTime(long time) {
+        advanceTo(time);
+        return "SetTime\t" + Time.format(time);
+    }
+
+    /**
+     * Moves the clock of the model, switching the devices whose switch times have come, as the home does.
+     */
+    private void advanceTo(long time) {
+        while (!pendingSwitches.isEmpty() && pendingSwitches.peek()[0] <= time) {
+            long[] pending = pendingSwitches.poll();
+            int device = (int) pending[1];
+
+            if (switchTimes[device] == pending[0]) {
+                on[device] = !on[device];
+                switchTimes[device] = Time.NONE;
+            }
+        }
+
+        currentTime = time;
+    }
+
+    /**
+     * @return the earliest switch time of the devices, Time.NONE if no device has a switch time
+     */
+    private long firstPendingSwitch() {
+        while (!pendingSwitches.isEmpty()) {
+            long[] pending = pendingSwitches.peek();
+            if (switchTimes[(int) pending[1]] == pending[0])
+                return pending[0];
+
+            pendingSwitches.poll();
+        }
+
+        return Time.NONE;
+    }
+
+    private int randomDevice() {
+        return random.nextInt(deviceCount);
+    }
+
+    /**
+     * @return a device of the given type near the given device, or the given device itself if there is no device of that type
+     */
+    private int deviceOfType(int type, int device) {
+        int candidate = device - device % DEVICE_TYPES.length + type;
+        if (candidate < deviceCount)
+            return candidate;
+
+        return type < deviceCount ? type : device;
+    }
+
+    private long nextLong(long bound) {
+        return bound <= Integer.MAX_VALUE ? random.nextInt((int) bound) : Math.floorMod(random.nextLong(), bound);
+    }
+
+    private int kelvin() {
+        return 2000 + random.nextInt(4501);
+    }
+
+    private int brightness() {
+        return random.nextInt(101);
+    }
+
+    private String colorCode() {
+        return "0x" + Integer.toHexString(random.nextInt(0x1000000)).toUpperCase();
+    }
+
+    private static String status(boolean on) {
+        return on ? "On" : "Off";
+    }
+
+    public static void main(String[] args) throws IOException {
+        long commandCount = Long.parseLong(args[1]);
+        int deviceCount = args.length > 2 ? Integer.parseInt(args[2]) : (int) Math.max(4, Math.min(100000, commandCount / 50));
+        double errorRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        long timeSpan = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_TIME_SPAN;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : DEFAULT_SEED;
+
+        ScriptGenerator generator = new ScriptGenerator(deviceCount, commandCount, errorRatio, timeSpan, seed);
+        try (Writer writer = new BufferedWriter(new FileWriter(args[0]), 1 << 16)) {
+            long count = generator.writeTo(writer);
+            System.out.println(count + " commands are generated to " + args[0] + ", " + generator.getErroneousCount() + " of them erroneous");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The Java Flight Recorder events of the simulation, so that a recording of the program shows what the homes were doing
+ * next to the GC pauses, I/O and other JVM events of the same time.<br><br>
+ * The events are in the "Smart Home" category of the recording, e.g. the program is started with -XX:StartFlightRecording=filename=recording.jfr to record them.
+ * They are created only after the Flight Recorder is started, by that option or later with jcmd, since the first event starts up the recorder,
+ * which would add a few hundred milliseconds to every run. Until then they cost only a check.<br><br>
+ * Command dispatches are frequent, so only the ones that take at least 1 ms are recorded by default.
+ * The threshold can be changed in the recording settings, e.g. smarthome.CommandDispatch#threshold=0 ms records every command.
+ */
+public final class SimulationEvents {
+    //names of the scheduled devices of a switch event are listed up to this many
+    static final int MAX_LISTED_DEVICES = 100;
+
+    private SimulationEvents() {
+    }
+
+    /**
+     * @return true if the Flight Recorder is started, so the events can be created
+     */
+    static boolean isRecording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * Begins the given event, to be created only if isRecording.
+     *
+     * @return the given event
+     */
+    static <T extends Event> T begin(T event) {
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the given event, if it is begun.
+     *
+     * @param event the event, null if it is not begun because there was no recording
+     * @return true if the event is enabled and long enough to be committed, its fields are to be set and committed then
+     */
+    static boolean end(Event event) {
+        if (event == null)
+            return false;
+
+        event.end();
+        return event.shouldCommit();
+    }
+
+    @Name("smarthome.CommandDispatch")
+    @Label("Command Dispatch")
+    @Category("Smart Home")
+    @Description("A command line that is dispatched to its handler")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static class CommandDispatch extends Event {
+        @Label("Keyword")
+        String keyword;
+
+        @Label("Command")
+        String command;
+    }
+
+    @Name("smarthome.ScheduledSwitch")
+    @Label("Scheduled Switch")
+    @Category("Smart Home")
+    @Description("Devices that are switched because their switch time has come")
+    @StackTrace(false)
+    static class ScheduledSwitch extends Event {
+        @Label("Switch Time")
+        String switchTime;
+
+        @Label("Device Count")
+        int deviceCount;
+
+        @Label("Devices")
+        @Description("Names of the switched devices, the first " + MAX_LISTED_DEVICES + " of them")
+        String devices;
+    }
+
+    @Name("smarthome.TimeAdvance")
+    @Label("Time Advance")
+    @Category("Smart Home")
+    @Description("The clock of a home moved forward by SetTime, SkipMinutes or Nop, with the scheduled switches on the way")
+    @StackTrace(false)
+    static class TimeAdvance extends Event {
+        @Label("From")
+        String from;
+
+        @Label("To")
+        String to;
+
+        @Label("Minutes")
+        long minutes;
+
+        @Label("Switch Groups")
+        @Description("Number of distinct switch times that are passed")
+        int switchGroups;
+
+        @Label("Switched Devices")
+        int switchedDevices;
+    }
+
+    @Name("smarthome.UsageCalculation")
+    @Label("Usage Calculation")
+    @Category("Smart Home")
+    @Description("Energy consumption of a plug or storage usage of a camera, calculated when it is switched off or unplugged")
+    @StackTrace(false)
+    static class UsageCalculation extends Event {
+        @Label("Device")
+        String device;
+
+        @Label("Device Type")
+        String deviceType;
+
+        @Label("Minutes")
+        long minutes;
+
+        @Label("Amount")
+        @Description("Watts for a plug, megabytes for a camera")
+        double amount;
+    }
+
+    @Name("smarthome.ZReport")
+    @Label("Z Report")
+    @Category("Smart Home")
+    @Description("A Z-Report of all the devices of a home")
+    @StackTrace(false)
+    static class ZReport extends Event {
+        @Label("Device Count")
+        int deviceCount;
+
+        @Label("Characters")
+        int characters;
+    }
+}
@@ -1,11 +1,15 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class SmartCamera extends SmartDevice {
     private double megabytesPerSecond;
     private double totalMegabyteUsage;
-    protected Time calculationStartTime;
+    protected long calculationStartTime;
 
     public SmartCamera(String deviceName) {
         this.deviceName = deviceName;
-        this.calculationStartTime = new Time();
+        this.calculationStartTime = Time.NONE;
         this.deviceType = "Smart Camera";
 
         //default values will be used while creating the device, but if user gave any of the values,
@@ -14,6 +18,14 @@ public class SmartCamera extends SmartDevice {
         this.totalMegabyteUsage = 0;
     }
 
+    /**
+     * Creates a view of the camera with the given id in the store.
+     */
+    SmartCamera(ColumnarDeviceStore store, int id) {
+        super(store, id);
+        this.deviceType = "Smart Camera";
+    }
+
     /**
      * Retrieves the SmartCamera object with the given device name string.
      *
@@ -24,46 +36,30 @@ public class SmartCamera extends SmartDevice {
      * @throws DeviceTypeException       if the retrieved device is not a SmartCamera
      */
     public static SmartCamera getDevice(String name) throws DeviceNotFoundException, ErroneousCommandException, DeviceTypeException {
-        if (!doesExists(name))
-            throw new DeviceNotFoundException();
-
-        SmartDevice device = null;
-
-        for (SmartDevice currentDevice : smartDevices)
-            if (currentDevice.deviceName.equals(name)) {
-                device = currentDevice;
-                break;
-            }
-
-        if (!(device instanceof SmartCamera))
-            throw new DeviceTypeException("smart camera");
-
-        return (SmartCamera) device;
+        return getTypedDevice(name, SmartCamera.class, "smart camera");
     }
 
     /**
-     * Adds a new SmartCamera device to the ArrayList of smart devices.
+     * Adds a new SmartCamera device to the smart devices of the system.
      *
-     * @param line The command line input for adding a new SmartCamera device.
+     * @param args The arguments of the command line for adding a new SmartCamera device.
      */
-    public static void addSmartCamera(String line) {
-        String[] args = line.split("\t");
-
+    public static void addSmartCamera(CommandTokens args) {
         String deviceName = "";
         String initialStatus = "Off";
         String megabyteStr = "NotGiven";
 
 
-        switch (args.length) {
+        switch (args.count()) {
             case 4:
-                deviceName = args[2];
-                megabyteStr = args[3];
+                deviceName = args.getString(2);
+                megabyteStr = args.getString(3);
                 break;
 
             case 5:
-                deviceName = args[2];
-                megabyteStr = args[3];
-                initialStatus = args[4];
+                deviceName = args.getString(2);
+                megabyteStr = args.getString(3);
+                initialStatus = args.getString(4);
                 break;
 
             default: // The case where number of command arguments is different from allowed
@@ -87,8 +83,8 @@ public class SmartCamera extends SmartDevice {
         }
 
         //if initial status is on, then set the start time of the device
-        if (camera.isOn)
-            camera.calculationStartTime.setDateTime(Time.getCurrentTime().getDateTime());
+        if (camera.isOn())
+            camera.setCalculationStartTime(Time.getCurrentTime());
 
         addDevice(camera);
     }
@@ -100,22 +96,22 @@ public class SmartCamera extends SmartDevice {
      * @throws IllegalArgumentException  if megabyte value is not a positive number
      * @throws ErroneousCommandException if megabyte value cannot be parsed to double in the first place
      */
-    public void checkMegabyteConsumption(String megabyteStr) throws ErroneousCommandException, IllegalArgumentException {
+    public void checkMegabyteConsumption(CharSequence megabyteStr) throws ErroneousCommandException, IllegalArgumentException {
         //Just returns if the megabyte value is not given at all, so that the default value of 0 is used for megabyte
-        if (megabyteStr.equals("NotGiven"))
+        if ("NotGiven".contentEquals(megabyteStr))
             return;
 
         //Otherwise, tries to parse the megabyte value to double
         double megabyte;
 
         try {
-            megabyte = Double.parseDouble(megabyteStr);
+            megabyte = CommandTokens.parseDouble(megabyteStr);
         } catch (NumberFormatException e) {
             throw new ErroneousCommandException();
         }
 
         if (megabyte <= 0)
-            throw new IllegalArgumentException("ERROR: Megabyte value must be a positive number!");
+            throw new InvalidArgumentException("ERROR: Megabyte value must be a positive number!");
 
         else
             setMegabytesPerSecond(megabyte);
@@ -127,14 +123,46 @@ public class SmartCamera extends SmartDevice {
      * @param megabytesPerSecond The double value to be set for megabytesPerSecond.
      */
     public void setMegabytesPerSecond(double megabytesPerSecond) {
-        this.megabytesPerSecond = megabytesPerSecond;
+        if (store != null)
+            store.setMegabytesPerSecond(id, megabytesPerSecond);
+        else
+            this.megabytesPerSecond = megabytesPerSecond;
     }
 
     /**
      * @return megabytesPerSecond - Camera's megabyte usage per second as a double.
      */
     public double getMegabytesPerSecond() {
-        return megabytesPerSecond;
+        return store == null ? megabytesPerSecond : store.getMegabytesPerSecond(id);
+    }
+
+    public double getTotalMegabyteUsage() {
+        return store == null ? totalMegabyteUsage : store.getTotalMegabyteUsage(id);
+    }
+
+    /**
+     * Sets the total storage usage, which is shown in the Z-Report.
+     */
+    public void setTotalMegabyteUsage(double totalMegabyteUsage) {
+        if (store != null)
+            store.setTotalMegabyteUsage(id, totalMegabyteUsage);
+        else
+            this.totalMegabyteUsage = totalMegabyteUsage;
+        markDirty();
+    }
+
+    /**
+     * @return the time the current usage is calculated from, Time.NONE if it is not being calculated
+     */
+    protected long getCalculationStartTime() {
+        return store == null ? calculationStartTime : store.getCalculationStartTime(id);
+    }
+
+    protected void setCalculationStartTime(long calculationStartTime) {
+        if (store != null)
+            store.setCalculationStartTime(id, calculationStartTime);
+        else
+            this.calculationStartTime = calculationStartTime;
     }
 
     /**
@@ -142,12 +170,56 @@ public class SmartCamera extends SmartDevice {
      * Uses formula: totalMegabyteUsage = megabytesPerSecond * timeDifference
      */
     public void calculateUsage() {
+        SimulationEvents.UsageCalculation event = SimulationEvents.isRecording() ? SimulationEvents.begin(new SimulationEvents.UsageCalculation()) : null;
+
         double currentUsage = 0;
-        long timeDifference = Time.getDifference(this.calculationStartTime, Time.getCurrentTime());
+        long timeDifference = Time.getDifference(getCalculationStartTime(), Time.getCurrentTime());
+
+        currentUsage = getMegabytesPerSecond() * timeDifference;
 
-        currentUsage = this.megabytesPerSecond * timeDifference;
+        setTotalMegabyteUsage(getTotalMegabyteUsage() + currentUsage);
 
-        this.totalMegabyteUsage += currentUsage;
+        if (SimulationEvents.end(event)) {
+            event.device = getDeviceName();
+            event.deviceType = deviceType;
+            event.minutes = timeDifference;
+            event.amount = currentUsage;
+            event.commit();
+        }
+    }
+
+    /**
+     * Copies the megabytes per second, storage usage and calculation start time of the camera after the state of the superclass.
+     */
+    @Override
+    protected void copyState(SmartDevice from) {
+        super.copyState(from);
+        SmartCamera camera = (SmartCamera) from;
+        setMegabytesPerSecond(camera.getMegabytesPerSecond());
+        setTotalMegabyteUsage(camera.getTotalMegabyteUsage());
+        setCalculationStartTime(camera.getCalculationStartTime());
+    }
+
+    /**
+     * Writes the megabytes per second, storage usage and calculation start time of the camera after the state of the superclass.
+     */
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        super.writeState(out);
+        out.writeDouble(getMegabytesPerSecond());
+        out.writeDouble(getTotalMegabyteUsage());
+        out.writeLong(getCalculationStartTime());
+    }
+
+    /**
+     * Reads the megabytes per second, storage usage and calculation start time of the camera after the state of the superclass.
+     */
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        super.readState(in);
+        setMegabytesPerSecond(in.readDouble());
+        setTotalMegabyteUsage(in.readDouble());
+        setCalculationStartTime(in.readLong());
     }
 
     /**
@@ -155,12 +227,16 @@ public class SmartCamera extends SmartDevice {
      */
     @Override
     public String toString() {
-        String formattedUsageString = String.format("%.02f", totalMegabyteUsage);
+        StringBuilder builder = new StringBuilder(160);
+
+        builder.append(deviceType).append(' ')
+                .append(getDeviceName()).append(" is ")
+                .append(getStatus())
+                .append(" and used ");
+        FixedPointFormat.appendTwoDecimals(builder, getTotalMegabyteUsage());
 
-        return deviceType + " " +
-                deviceName + " is " +
-                getStatus() +
-                " and used " + formattedUsageString + " MB of storage so far (excluding current status)" +
-                ", and its time to switch its status is " + switchTime + ".";
+        return builder.append(" MB of storage so far (excluding current status)")
+                .append(", and its time to switch its status is ").append(Time.format(getSwitchTime())).append('.')
+                .toString();
     }
 }
@@ -1,3 +1,7 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class SmartColorLamp extends SmartLamp{
     /**only holds a hexadecimal value as string, kelvin value is kept in kelvinValue variable of super class SmartLamp*/
     private String colorCode;
@@ -12,6 +16,14 @@ public class SmartColorLamp extends SmartLamp{
         inColorMode = false;
     }
 
+    /**
+     * Creates a view of the color lamp with the given id in the store.
+     */
+    SmartColorLamp(ColumnarDeviceStore store, int id) {
+        super(store, id);
+        this.deviceType = "Smart Color Lamp";
+    }
+
     /**
      Retrieves the SmartPlug object with the given device name string.
      @param name the name of the device object to retrieve
@@ -21,51 +33,35 @@ public class SmartColorLamp extends SmartLamp{
      @throws DeviceTypeException if the retrieved device is not a SmartColorLamp
      */
     public static SmartColorLamp getDevice(String name) throws DeviceNotFoundException, ErroneousCommandException, DeviceTypeException {
-        if (!doesExists(name))
-            throw new DeviceNotFoundException();
-
-        SmartDevice device = null;
-
-        for (SmartDevice currentDevice : smartDevices)
-            if (currentDevice.deviceName.equals(name)){
-                device = currentDevice;
-                break;
-            }
-
-        if (!(device instanceof SmartColorLamp))
-            throw new DeviceTypeException("smart color lamp");
-
-        return (SmartColorLamp) device;
+        return getTypedDevice(name, SmartColorLamp.class, "smart color lamp");
     }
 
     /**
-     * Adds a new SmartColorLamp device to the ArrayList of smart devices.
+     * Adds a new SmartColorLamp device to the smart devices of the system.
      *
-     * @param line The command line input for adding a new SmartColorLamp device.
+     * @param args The arguments of the command line for adding a new SmartColorLamp device.
      */
-    public static void addSmartColorLamp(String line){
-        String[] args = line.split("\t");
-
+    public static void addSmartColorLamp(CommandTokens args){
         String deviceName = "";
         String initialStatus = "Off";
         String brightnessStr = "NotGiven";
         String colorStr = "NotGiven";
 
-        switch(args.length){
+        switch(args.count()){
             case 3:
-                deviceName = args[2];
+                deviceName = args.getString(2);
                 break;
 
             case 4:
-                deviceName = args[2];
-                initialStatus = args[3];
+                deviceName = args.getString(2);
+                initialStatus = args.getString(3);
                 break;
 
             case 6:
-                deviceName = args[2];
-                initialStatus = args[3];
-                colorStr = args[4];
-                brightnessStr = args[5];
+                deviceName = args.getString(2);
+                initialStatus = args.getString(3);
+                colorStr = args.getString(4);
+                brightnessStr = args.getString(5);
                 break;
 
             default:
@@ -124,7 +120,11 @@ public class SmartColorLamp extends SmartLamp{
      * @param colorCode the new color code of the device.
      */
     public void setColorCode(String colorCode) {
-        this.colorCode = colorCode;
+        if (store != null)
+            store.setColorCode(id, colorCode);
+        else
+            this.colorCode = colorCode;
+        markDirty();
     }
 
     /**
@@ -137,15 +137,15 @@ public class SmartColorLamp extends SmartLamp{
         switch (mode) {
             case "Kelvin":
                 if(value < 2000 || value > 6500)
-                    throw new IllegalArgumentException("ERROR: Kelvin value must be in range of 2000K-6500K!");
+                    throw new InvalidArgumentException("ERROR: Kelvin value must be in range of 2000K-6500K!");
                 break;
             case "Brightness":
                 if(value < 0 || value > 100)
-                    throw new IllegalArgumentException("ERROR: Brightness must be in range of 0%-100%!");
+                    throw new InvalidArgumentException("ERROR: Brightness must be in range of 0%-100%!");
                 break;
             case "Color Code":
                 if(value < 0 || value > Integer.parseInt("FFFFFF", 16))
-                    throw new IllegalArgumentException("ERROR: Color code value must be in range of 0x0-0xFFFFFF!");
+                    throw new InvalidArgumentException("ERROR: Color code value must be in range of 0x0-0xFFFFFF!");
                 break;
             default:
                 break;
@@ -158,19 +158,22 @@ public class SmartColorLamp extends SmartLamp{
      @throws ErroneousCommandException if value cannot be parsed to int
      @return value - the parsed int value of brightness or kelvin (or Integer.MAX_VALUE if the value is not given)
      */
-    public static int checkParseable(String valueStr, boolean isColorMode) throws ErroneousCommandException{
+    public static int checkParseable(CharSequence valueStr, boolean isColorMode) throws ErroneousCommandException{
         //the default value will be used only if both of values are not given
-        if(valueStr.equals("NotGiven"))
+        if("NotGiven".contentEquals(valueStr))
             return Integer.MAX_VALUE;
 
         //Otherwise, tries to parse the kelvin value and brightness value to int
         int value;
 
         try {
-            if(isColorMode)
-                value = Integer.parseInt(valueStr.substring(2), 16);
+            //the first two characters are the "0x" prefix of the color code, a shorter value is not a color code at all
+            if(isColorMode && valueStr.length() < 2)
+                throw new InvalidNumberException("Color code must start with 0x!");
+            else if(isColorMode)
+                value = CommandTokens.parseInt(valueStr, 2, 16);
             else
-                value = Integer.parseInt(valueStr);
+                value = CommandTokens.parseInt(valueStr);
         } catch (NumberFormatException e) {
             throw new ErroneousCommandException();
         }
@@ -179,30 +182,30 @@ public class SmartColorLamp extends SmartLamp{
 
     /**
      * Changes the color code of the device
-     * @param line The command line input for changing the color code of the device.
+     * @param args The arguments of the command line for changing the color code of the device.
      */
-    public static void changeColorCode(String line){
+    public static void changeColorCode(CommandTokens args){
         String deviceName;
-        String colorCodeStr;
+        CharSequence colorCodeStr;
         SmartColorLamp device;
 
         try {
             try {
-                deviceName = line.split("\t")[1];
-                colorCodeStr = line.split("\t")[2];
+                deviceName = args.getString(1);
+                colorCodeStr = args.get(2);
             } catch (ArrayIndexOutOfBoundsException e){
                 throw new ErroneousCommandException();
             }
             device = getDevice(deviceName);
             int colorCodeValue = checkParseable(colorCodeStr);
             checkRange("Color Code", colorCodeValue);
-            device.setColorCode(colorCodeStr);
+            device.setColorCode(colorCodeStr.toString());
         }catch (DeviceNotFoundException | ErroneousCommandException | DeviceTypeException | IllegalArgumentException e) {
             write(e.getMessage());
             return;
         }
 
-        device.inColorMode = true;
+        device.setColorMode(true);
     }
 
     /**
@@ -210,19 +213,19 @@ public class SmartColorLamp extends SmartLamp{
      * When processing the command, first checks if there's data type inconvenience (e.g. brightness is given as a string) <br>
      * Then checks if the ranges of color code and brightness are correct <br>
      * If both ranges are incorrect, gives an error message for the first one <br>
-     * @param line  the command line that will be processed
+     * @param args  the arguments of the command line that will be processed
      */
-    public static void changeColor(String line) {
+    public static void changeColor(CommandTokens args) {
         String deviceName;
-        String colorCodeStr;
-        String brightnessStr;
+        CharSequence colorCodeStr;
+        CharSequence brightnessStr;
         SmartColorLamp device;
 
         try {
             try {
-                deviceName = line.split("\t")[1];
-                colorCodeStr = line.split("\t")[2];
-                brightnessStr = line.split("\t")[3];
+                deviceName = args.getString(1);
+                colorCodeStr = args.get(2);
+                brightnessStr = args.get(3);
             } catch (ArrayIndexOutOfBoundsException e){
                 throw new ErroneousCommandException();
             }
@@ -231,14 +234,45 @@ public class SmartColorLamp extends SmartLamp{
             int brightnessValue = checkParseable(brightnessStr, false);
             checkRange("Color Mode", colorValue);
             checkRange("Brightness", brightnessValue);
-            device.setColorCode(colorCodeStr);
+            device.setColorCode(colorCodeStr.toString());
             device.setBrightnessPercentage(brightnessValue);
         }catch (DeviceNotFoundException | ErroneousCommandException | DeviceTypeException | IllegalArgumentException e) {
             write(e.getMessage());
             return;
         }
 
-        device.inColorMode = true;
+        device.setColorMode(true);
+    }
+
+    /**
+     * Copies the color code and color mode of the lamp after the state of the superclass.
+     */
+    @Override
+    protected void copyState(SmartDevice from) {
+        super.copyState(from);
+        SmartColorLamp colorLamp = (SmartColorLamp) from;
+        setColorCode(colorLamp.getColorCode());
+        setColorMode(colorLamp.isInColorMode());
+    }
+
+    /**
+     * Writes the color code and color mode of the lamp after the state of the superclass.
+     */
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        super.writeState(out);
+        Checkpoint.writeString(out, getColorCode());
+        out.writeBoolean(isInColorMode());
+    }
+
+    /**
+     * Reads the color code and color mode of the lamp after the state of the superclass.
+     */
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        super.readState(in);
+        setColorCode(Checkpoint.readString(in));
+        setColorMode(in.readBoolean());
     }
 
     /**
@@ -248,13 +282,13 @@ public class SmartColorLamp extends SmartLamp{
     public String toString() {
 
         //if in color mode, only color code is given, otherwise kelvin value is concatenated to "K" unit
-        String colorValue = inColorMode ?  getColorCode() : getKelvinValue() + "K";
+        String colorValue = isInColorMode() ?  getColorCode() : getKelvinValue() + "K";
 
         return deviceType + " " +
-                deviceName + " is " +
+                getDeviceName() + " is " +
                 getStatus() +
                 " and its color value is " + colorValue + " with " + getBrightnessPercentage() +"% brightness" +
-                ", and its time to switch its status is " + switchTime + ".";
+                ", and its time to switch its status is " + Time.format(getSwitchTime()) + ".";
     }
 
     /**
@@ -272,14 +306,25 @@ public class SmartColorLamp extends SmartLamp{
      * @param colorMode the color mode that will be set
      */
     public void setColorMode(boolean colorMode) {
-        this.inColorMode = colorMode;
+        if (store != null)
+            store.setColorMode(id, colorMode);
+        else
+            this.inColorMode = colorMode;
+        markDirty();
+    }
+
+    /**
+     * @return true if the lamp shows its color code, false if it shows its kelvin value
+     */
+    public boolean isInColorMode() {
+        return store == null ? inColorMode : store.isInColorMode(id);
     }
 
     /**
      * @return the color mode of the lamp
      */
     public String getColorCode() {
-            return colorCode;
+            return store == null ? colorCode : store.getColorCode(id);
     }
 
 
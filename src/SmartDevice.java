@@ -1,40 +1,40 @@
-import java.time.LocalDateTime;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 
 /**
- * A custom comparator that is used to sort the list of SmartDevices based on their switch times in ascending order and respects the relative order of them if their switch times are equal. <br><br>
- * If both SmartDevices have a null switch time, they are considered equal and their relative order is preserved. <br><br>
- * If the switch time of one SmartDevice is null while the other one is not, the one with the non-null switch time is considered greater than the one with the null switch time. <br><br>
- * If neither SmartDevice has a null switch time, they are compared based on their switch times using the built-in compareTo method of the LocalDateTime class
+ * The base class of all smart devices. The devices are kept by the current SmartHome, in its DeviceStore.<br><br>
+ * A device keeps its state in its own fields, or is a view of a ColumnarDeviceStore that keeps its state in the arrays of the store,
+ * so the state of a device that is looked up from the store is read and changed only through its methods.
  */
-class StableSortComparator implements Comparator<SmartDevice> {
-    /**
-     * Compares two SmartDevices based on their switch times in ascending order and respects the relative order of them if their switch times are equal.
-     *
-     * @param d1 the first object to be compared.
-     * @param d2 the second object to be compared.
-     * @return a negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
-     */
-    public int compare(SmartDevice d1, SmartDevice d2) {
-        if (d1.switchTime == null && d2.switchTime == null) {
-            return 0;
-        } else if (d1.switchTime == null) {
-            return 1;
-        } else if (d2.switchTime == null) {
-            return -1;
-        } else
-            return d1.getSwitchTime().compareTo(d2.getSwitchTime());
-    }
-}
-
-
 public abstract class SmartDevice {
-    protected static ArrayList<SmartDevice> smartDevices = new ArrayList<>();
     public String deviceName;
     public String deviceType;
-    protected Time switchTime = null; // devices has no switch time by default
+    protected long switchTime = Time.NONE; // devices has no switch time by default
+    protected long scheduleOrder = 0; // relative order among the devices with the same switch time, set by the SwitchScheduler
     protected boolean isOn = false;
+    //the line of the device in the Z-Report, rendered again only if something shown in it has changed
+    private String reportLine = null;
+    private boolean reportDirty = true;
+    //the store and the id of the device if it is a view of a ColumnarDeviceStore, null and -1 otherwise
+    final ColumnarDeviceStore store;
+    final int id;
+
+    protected SmartDevice() {
+        this(null, -1);
+    }
+
+    /**
+     * Creates a view of the device with the given id in the store, whose fields are not used.
+     *
+     * @param store the store that keeps the state of the device
+     * @param id    the id of the device in the store
+     */
+    protected SmartDevice(ColumnarDeviceStore store, int id) {
+        this.store = store;
+        this.id = id;
+    }
 
     /* Methods that can be called by user */
 
@@ -44,10 +44,9 @@ public abstract class SmartDevice {
      * @param smartDevice the device containing the device name and type
      */
     public static void addDevice(SmartDevice smartDevice) {
-        if (!doesExists(smartDevice.deviceName)) {
-            smartDevices.add(smartDevice);
-            sortDevices();
-        } else
+        if (!doesExists(smartDevice.deviceName))
+            SmartHome.current().smartDevices.add(smartDevice);
+        else
             write("ERROR: There is already a smart device with same name!");
 
     }
@@ -55,19 +54,17 @@ public abstract class SmartDevice {
     /**
      * Deletes the smart device with the given name from the system.
      *
-     * @param line the command line containing the device name
+     * @param args the arguments of the command line containing the device name
      */
-    public static void removeDevice(String line) {
+    public static void removeDevice(CommandTokens args) {
         String deviceName;
         SmartDevice removedDevice;
 
         try {
-            deviceName = line.split("\t")[1];
+            deviceName = args.getString(1);
             /** "it has to switch the device off before removing it" */
             removedDevice = getDevice(deviceName);
-            removedDevice.isOn = false;
-            /** can be Used predicate filter, report **/
-            smartDevices.removeIf(smartDevice -> smartDevice.deviceName.equals(deviceName));
+            removedDevice.setOn(false);
         } catch (NullPointerException e) {
             write("ERROR: Device is null!");
             return;
@@ -81,28 +78,32 @@ public abstract class SmartDevice {
         else if (removedDevice instanceof SmartCamera)
             ((SmartCamera) removedDevice).calculateUsage();
 
+        //the device is removed only after its last state is taken, a view of a removed device cannot be read anymore
+        String information = removedDevice.toString();
+        SmartHome.current().smartDevices.remove(removedDevice);
+
         write("SUCCESS: Information about removed smart device is as follows:");
-        write(removedDevice.toString());
+        write(information);
 
     }
 
     /**
      * Switches the device on or off at a given time by setting switchTime, its command from user is "setSwitchTame"
      *
-     * @param line
+     * @param args the arguments of the command line containing the device name and the switch time
      */
-    public static void switchLater(String line) {
-        //Time object from custom Time class with given time string
-        Time switchTime;
+    public static void switchLater(CommandTokens args) {
+        //switch time in seconds, parsed from the given time string
+        long switchTime;
         String deviceName;
-        String switchTimeStr;
+        CharSequence switchTimeStr;
         SmartDevice smartDevice;
 
         try {
-            deviceName = line.split("\t")[1];
-            switchTimeStr = line.split("\t")[2];
+            deviceName = args.getString(1);
+            switchTimeStr = args.get(2);
 
-            switchTime = Time.createTimeObject(switchTimeStr);
+            switchTime = Time.parseTime(switchTimeStr);
             smartDevice = getDevice(deviceName);
 
             if (smartDevice == null)
@@ -114,37 +115,36 @@ public abstract class SmartDevice {
         }
 
         // check if time is before current time
-        if (switchTime.getDateTime().isBefore(Time.getCurrentTime().getDateTime()))
+        if (switchTime < Time.getCurrentTime())
             write("ERROR: Switch time cannot be in the past!");
 
         else
-            smartDevice.switchTime = switchTime;
+            SmartHome.current().smartDevices.setSwitchTime(smartDevice, switchTime);
 
-        sortDevices();
         switchDevices();
     }
 
     /**
      * Switches the device on or off immediately, its command from user is "switch"
      *
-     * @param line the command line containing the device name and status
+     * @param args the arguments of the command line containing the device name and status
      */
-    public static void switchNow(String line) {
+    public static void switchNow(CommandTokens args) {
         String deviceName;
-        String status;
+        CharSequence status;
         SmartDevice smartDevice;
 
         try {
-            deviceName = line.split("\t")[1];
-            status = line.split("\t")[2];
+            deviceName = args.getString(1);
+            status = args.get(2);
             smartDevice = getDevice(deviceName);
 
             if (smartDevice == null)
                 throw new DeviceNotFoundException();
 
             // check if device is already switched on or off
-            if (status.equalsIgnoreCase(smartDevice.getStatus()))
-                throw new IllegalArgumentException("ERROR: This device is already switched " + smartDevice.getStatus() + "!");
+            if (CommandTokens.equalsIgnoreCase(status, smartDevice.getStatus()))
+                throw new InvalidArgumentException("ERROR: This device is already switched " + smartDevice.getStatus() + "!");
 
             smartDevice.setStatus(status);
         } catch (ArrayIndexOutOfBoundsException | ErroneousCommandException e) {
@@ -159,53 +159,54 @@ public abstract class SmartDevice {
             SmartPlug plug = (SmartPlug) smartDevice;
 
             //if plug is switched on while something is plugged in, start timer
-            if (plug.isSomethingPlugged() && plug.isOn)
-                plug.calculationStartTime.setDateTime(Time.getCurrentTime().getDateTime());
+            if (plug.isSomethingPlugged() && plug.isOn())
+                plug.setCalculationStartTime(Time.getCurrentTime());
 
                 //if plug is switched off while something is plugged in calculate consumption
-            else if (plug.isSomethingPlugged() && !plug.isOn) {
+            else if (plug.isSomethingPlugged() && !plug.isOn()) {
                 plug.calculateConsumption();
-                plug.calculationStartTime.setDateTime(null);
+                plug.setCalculationStartTime(Time.NONE);
             }
         } else if (smartDevice instanceof SmartCamera) {
             SmartCamera camera = (SmartCamera) smartDevice;
 
             //if camera is switched on, start timer
-            if (camera.isOn)
-                camera.calculationStartTime.setDateTime(Time.getCurrentTime().getDateTime());
+            if (camera.isOn())
+                camera.setCalculationStartTime(Time.getCurrentTime());
 
                 //if camera is switched off, calculate storage usage
-            else if (!camera.isOn) {
+            else if (!camera.isOn()) {
                 camera.calculateUsage();
-                camera.calculationStartTime.setDateTime(null);
+                camera.setCalculationStartTime(Time.NONE);
             }
         }
 
-        smartDevice.switchTime = null;
-        sortDevices();
+        SmartHome.current().smartDevices.setSwitchTime(smartDevice, Time.NONE);
     }
 
     /**
      * Switches the time to the next switch time of a smart device.
      */
     public static void nop() {
-        // If arraylist is empty, there is nothing to switch
+        DeviceStore smartDevices = SmartHome.current().smartDevices;
+
+        // If there are no devices, there is nothing to switch
         if (smartDevices.isEmpty()) {
             write("ERROR: There is nothing to switch!");
             return;
         }
 
-        /*If there is at least one device that has a switch time, it has to be in the first index of the arraylist
-        So, if not even the first device has a switch time, it also means there is  nothing to switch */
-        if (smartDevices.get(0).switchTime == null) {
+        /*If there is at least one device that has a switch time, the store has an earliest switch time
+        So, if there is not even an earliest switch time, it also means there is  nothing to switch */
+        if (smartDevices.firstSwitchTime() == Time.NONE) {
             write("ERROR: There is nothing to switch!");
             return;
         }
 
-        /*Otherwise, we can switch the time to first device's switch time since
-        arraylist is sorted with respect to switch time in ascending order*/
+        /*Otherwise, we can switch the time to the earliest switch time since
+        store is ordered with respect to switch time in ascending order*/
         else
-            Time.setCurrentTime(smartDevices.get(0).switchTime);
+            Time.setCurrentTime(smartDevices.firstSwitchTime());
 
     }
 
@@ -213,34 +214,50 @@ public abstract class SmartDevice {
      * Displays the Z-Report, including the current time and various information about all smart devices.
      */
     public static void displayZReport() {
-        write("Time is:\t" + Time.getCurrentTime().toString());
+        DeviceStore smartDevices = SmartHome.current().smartDevices;
+
+        //the whole report is collected and written at once, with the lines of unchanged devices taken from their cache
+        StringBuilder report = new StringBuilder(64 * (smartDevices.size() + 1));
+        SimulationEvents.ZReport event = SimulationEvents.isRecording() ? SimulationEvents.begin(new SimulationEvents.ZReport()) : null;
+
+        report.append("Time is:\t").append(Time.format(Time.getCurrentTime()));
         for (SmartDevice smartDevice : smartDevices)
-            write(smartDevice.toString());
+            report.append('\n').append(smartDevice.getReportLine());
+
+        write(report.toString());
+
+        FileOutput.reportBoundary();
+
+        if (SimulationEvents.end(event)) {
+            event.deviceCount = smartDevices.size();
+            event.characters = report.length();
+            event.commit();
+        }
     }
 
     /**
      * Changes the name of a smart device if it exists and new name is not taken and both of the names are not the same
      *
-     * @param line the command line containing the device name
+     * @param args the arguments of the command line containing the device name
      */
-    public static void changeName(String line) {
+    public static void changeName(CommandTokens args) {
         String deviceName;
         String newDeviceName;
         SmartDevice smartDevice;
 
         try {
-            deviceName = line.split("\t")[1];
-            newDeviceName = line.split("\t")[2];
+            deviceName = args.getString(1);
+            newDeviceName = args.getString(2);
 
             // check if both of the names are the same
             if (deviceName.equals(newDeviceName))
-                throw new IllegalArgumentException("ERROR: Both of the names are the same, nothing changed!");
+                throw new InvalidArgumentException("ERROR: Both of the names are the same, nothing changed!");
 
             smartDevice = getDevice(deviceName);
 
             // check if new device name is already taken
             if (doesExists(newDeviceName))
-                throw new IllegalArgumentException("ERROR: There is already a smart device with same name!");
+                throw new InvalidArgumentException("ERROR: There is already a smart device with same name!");
         } catch (ArrayIndexOutOfBoundsException | DeviceNotFoundException | ErroneousCommandException |
                  DeviceTypeException e) {
             write("ERROR: Erroneous command!");
@@ -253,8 +270,8 @@ public abstract class SmartDevice {
             return;
         }
 
-        //update the device name
-        smartDevice.deviceName = newDeviceName;
+        //update the device name, and the store's lookup by name with it
+        SmartHome.current().smartDevices.rename(smartDevice, newDeviceName);
     }
 
     /* Non-Public Methods that are used among SmartDevice class family */
@@ -264,59 +281,72 @@ public abstract class SmartDevice {
      * @return true if there is a device with the given name, false otherwise
      */
     protected static boolean doesExists(String deviceName) {
-        return smartDevices.stream().anyMatch(device -> device.deviceName.equals(deviceName));
+        return SmartHome.current().smartDevices.contains(deviceName);
     }
 
     /**
-     * Iterates through the list of devices and switches their status if their switch time is reached.
+     * Switches the status of the devices whose switch time is reached, which are taken from the front of the scheduler.
+     *
+     * @return the number of devices that are switched
      */
-    protected static void switchDevices() {
-        for (SmartDevice smartDevice : smartDevices) {
-            //if a null switch time is encountered, the rest of the devices are also null
-            if (smartDevice.switchTime == null)
-                break;
-
-            if (smartDevice.switchTime.getDateTime().isBefore(Time.getCurrentTime().getDateTime()) || smartDevice.switchTime.getDateTime().isEqual(Time.getCurrentTime().getDateTime())) {
-                smartDevice.isOn = !smartDevice.isOn; //reverse the status of the device, i.e., switch it
-                smartDevice.switchTime = null;
-
-                if (smartDevice instanceof SmartPlug) {
-                    SmartPlug plug = (SmartPlug) smartDevice;
-
-                    //if plug is switched on while something is plugged in, start timer
-                    if (plug.isSomethingPlugged() && smartDevice.isOn)
-                        plug.calculationStartTime.setDateTime(Time.getCurrentTime().getDateTime());
-
-                        //if plug is switched off while something is plugged in calculate consumption
-                    else if (plug.isSomethingPlugged() && !smartDevice.isOn) {
-                        plug.calculateConsumption();
-                        plug.calculationStartTime.setDateTime(null);
-                    }
+    protected static int switchDevices() {
+        SimulationEvents.ScheduledSwitch event = SimulationEvents.isRecording() ? SimulationEvents.begin(new SimulationEvents.ScheduledSwitch()) : null;
+
+        ArrayList<SmartDevice> dueDevices = SmartHome.current().smartDevices.pollDue(Time.getCurrentTime());
+        for (SmartDevice smartDevice : dueDevices) {
+            smartDevice.setOn(!smartDevice.isOn()); //reverse the status of the device, i.e., switch it
+
+            if (smartDevice instanceof SmartPlug) {
+                SmartPlug plug = (SmartPlug) smartDevice;
+
+                //if plug is switched on while something is plugged in, start timer
+                if (plug.isSomethingPlugged() && smartDevice.isOn())
+                    plug.setCalculationStartTime(Time.getCurrentTime());
+
+                    //if plug is switched off while something is plugged in calculate consumption
+                else if (plug.isSomethingPlugged() && !smartDevice.isOn()) {
+                    plug.calculateConsumption();
+                    plug.setCalculationStartTime(Time.NONE);
                 }
             }
         }
-        sortDevices();
+
+        if (SimulationEvents.end(event) && !dueDevices.isEmpty()) {
+            event.switchTime = Time.format(Time.getCurrentTime());
+            event.deviceCount = dueDevices.size();
+            event.devices = deviceNames(dueDevices, SimulationEvents.MAX_LISTED_DEVICES);
+            event.commit();
+        }
+
+        return dueDevices.size();
     }
 
     /**
-     * @return The switch time of the first device in the list.
+     * @return the names of the first maxCount devices separated with commas, followed by "..." if there are more devices
      */
-    protected static Time getFirstSwitchTime() {
-        if (smartDevices.size() == 0)
-            return null;
+    private static String deviceNames(ArrayList<SmartDevice> devices, int maxCount) {
+        StringBuilder names = new StringBuilder();
 
-        return smartDevices.get(0).switchTime;
+        for (int i = 0; i < devices.size() && i < maxCount; i++) {
+            if (i > 0)
+                names.append(", ");
+            names.append(devices.get(i).getDeviceName());
+        }
+        if (devices.size() > maxCount)
+            names.append(", ...");
+
+        return names.toString();
     }
 
     /**
-     * Sorts the arraylist of smart devices with respect to their switch times in ascending order
+     * @return The switch time of the first device in the store, which is the earliest switch time, Time.NONE if there is no switch time.
      */
-    protected static void sortDevices() {
-        smartDevices.sort(new StableSortComparator());
+    protected static long getFirstSwitchTime() {
+        return SmartHome.current().smartDevices.firstSwitchTime();
     }
 
     /**
-     * Returns the SmartDevice object with the given name if it exists in the smartDevices list.
+     * Returns the SmartDevice object with the given name if it exists in the system.
      *
      * @param deviceName the name of the device to search for
      * @return the SmartDevice object with the given name
@@ -325,22 +355,133 @@ public abstract class SmartDevice {
      * @throws DeviceTypeException       if the device with the given name is not in expected type
      */
     protected static SmartDevice getDevice(String deviceName) throws DeviceNotFoundException, ErroneousCommandException, DeviceTypeException {
-        if (!doesExists(deviceName))
+        SmartDevice smartDevice = SmartHome.current().smartDevices.get(deviceName);
+
+        if (smartDevice == null)
             throw new DeviceNotFoundException();
 
-        for (SmartDevice smartDevice : smartDevices) {
-            if (smartDevice.deviceName.equals(deviceName))
-                return smartDevice;
+        return smartDevice;
+    }
+
+    /**
+     * Returns the device with the given name if it exists and is of the expected type, looked up from the store with a single hash lookup.
+     *
+     * @param deviceName the name of the device to search for
+     * @param type       the expected class of the device
+     * @param typeName   the name of the expected type that is used in the error message, e.g. "smart plug"
+     * @return the device with the given name, cast to the expected type
+     * @throws DeviceNotFoundException if the device with the given name does not exist
+     * @throws DeviceTypeException     if the device with the given name is not in expected type
+     */
+    protected static <T extends SmartDevice> T getTypedDevice(String deviceName, Class<T> type, String typeName) throws DeviceNotFoundException, DeviceTypeException {
+        SmartDevice smartDevice = SmartHome.current().smartDevices.get(deviceName);
+
+        if (smartDevice == null)
+            throw new DeviceNotFoundException();
+
+        if (!type.isInstance(smartDevice))
+            throw new DeviceTypeException(typeName);
+
+        return type.cast(smartDevice);
+    }
+
+    /**
+     * @return the switch time of the device in seconds, Time.NONE if the device has no switch time
+     */
+    protected long getSwitchTime() {
+        return store == null ? switchTime : store.getSwitchTime(id);
+    }
+
+    /**
+     * @return the relative order of the device among the devices with the same switch time
+     */
+    protected long getScheduleOrder() {
+        return store == null ? scheduleOrder : store.getScheduleOrder(id);
+    }
+
+    /**
+     * @return the name of the device, which a view reads from its store only once
+     */
+    public String getDeviceName() {
+        if (deviceName == null)
+            deviceName = store.getName(id);
+
+        return deviceName;
+    }
+
+    /**
+     * @return true if the device is switched on
+     */
+    protected boolean isOn() {
+        return store == null ? isOn : store.isOn(id);
+    }
+
+    /**
+     * @return the line of the device in the Z-Report, which is rendered with toString only if the device has changed since the last report
+     */
+    protected String getReportLine() {
+        //the lines of the views are not cached, since a view is made again for every report
+        if (store != null)
+            return toString();
+
+        if (reportDirty) {
+            reportLine = toString();
+            reportDirty = false;
         }
 
-        return null;
+        return reportLine;
     }
 
     /**
-     * @return the switch time of the device as a LocalDateTime object
+     * Marks the Z-Report line of the device as outdated.<br><br>
+     * Has to be called whenever something that is shown in toString changes, e.g. the status, the name or the switch time of the device.
+     */
+    protected void markDirty() {
+        reportDirty = true;
+    }
+
+    /**
+     * Switches the device on or off.
+     *
+     * @param on true to switch the device on, false to switch it off
+     */
+    protected void setOn(boolean on) {
+        if (store != null)
+            store.setOn(id, on);
+        else
+            isOn = on;
+        markDirty();
+    }
+
+    /**
+     * Copies the state of a device that is not in any store to this device, which is a view of the store the device is added to.<br><br>
+     * Subclasses copy their own fields after the fields of their superclass.
+     *
+     * @param from the device whose state is copied, of the same type as this device
+     */
+    protected void copyState(SmartDevice from) {
+        setOn(from.isOn());
+    }
+
+    /**
+     * Writes the state of the device that changes with the commands to a checkpoint, the name, type and switch time are written by the Checkpoint.<br><br>
+     * Subclasses write their own fields after the fields of their superclass.
+     *
+     * @param out the stream of the checkpoint
+     * @throws IOException if the state cannot be written
+     */
+    protected void writeState(DataOutputStream out) throws IOException {
+        out.writeBoolean(isOn());
+    }
+
+    /**
+     * Reads the state that is written by writeState back from a checkpoint.
+     *
+     * @param in the stream of the checkpoint
+     * @throws IOException if the state cannot be read
      */
-    protected LocalDateTime getSwitchTime() {
-        return switchTime.getDateTime();
+    protected void readState(DataInputStream in) throws IOException {
+        setOn(in.readBoolean());
     }
 
     /**
@@ -351,12 +492,12 @@ public abstract class SmartDevice {
      * @param status a string representing the desired status of the device.
      * @throws ErroneousCommandException if the given status string is neither "On" / "on" nor "Off" / "off".
      */
-    protected void setStatus(String status) throws ErroneousCommandException {
-        if (status.equalsIgnoreCase("on"))
-            isOn = true;
+    protected void setStatus(CharSequence status) throws ErroneousCommandException {
+        if (CommandTokens.equalsIgnoreCase(status, "on"))
+            setOn(true);
 
-        else if (status.equalsIgnoreCase("off"))
-            isOn = false;
+        else if (CommandTokens.equalsIgnoreCase(status, "off"))
+            setOn(false);
 
         else
             throw new ErroneousCommandException();
@@ -366,7 +507,7 @@ public abstract class SmartDevice {
      * @return the status of the device as a string. If the device is on, it returns "on". If the device is off, it returns "off".
      */
     protected String getStatus() {
-        if (isOn)
+        if (isOn())
             return "on";
 
         else
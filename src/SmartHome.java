@@ -0,0 +1,140 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A simulated home, which owns the state that used to be global: the devices, the clock, the command arguments and the output file.<br><br>
+ * The static methods of SmartDevice, Time, CommandDispatcher and FileOutput work on the current home of the calling thread.
+ * That is the default home, unless another home is being run on the thread with run(),
+ * so a single program run behaves as before and several homes can be simulated in one JVM, each on its own thread.
+ */
+public class SmartHome {
+    //whether the devices of the homes that are created from now on are kept in a ColumnarDeviceStore instead of as objects, set before the default home is created
+    public static boolean columnarDevices = Boolean.getBoolean("devices.columnar");
+
+    //the home that is used when no other home is being run on the thread, e.g. by Main
+    private static final SmartHome defaultHome = new SmartHome();
+
+    //the home that is being run on each thread
+    private static final ThreadLocal<SmartHome> currentHome = ThreadLocal.withInitial(() -> defaultHome);
+
+    //devices ordered by their switch times, the order they are displayed in the Z-Report, and found by name
+    final DeviceStore smartDevices = columnarDevices ? new ColumnarDeviceStore() : new ObjectDeviceStore();
+
+    //the clock of the home, kept by the Time class
+    long initialTime = Time.NONE;
+    long currentTime = Time.NONE;
+
+    //arguments of the command line that is being dispatched, reused for every line
+    final CommandTokens args = new CommandTokens();
+
+    //the write-ahead log and checkpoints of the home, null if the home is not recoverable
+    CommandJournal journal = null;
+
+    //the output file of the home, opened with openOutput
+    String outputPath = null;
+    OutputSink sink = null;
+
+    //error lines written to the output, and the devices and pending switches counted in the gauges, kept only if CommandMetrics are enabled
+    int errorLines = 0;
+    int countedDevices = 0;
+    int countedSwitches = 0;
+
+    /**
+     * @return the home that is being run on the calling thread, the default home if there is none
+     */
+    public static SmartHome current() {
+        return currentHome.get();
+    }
+
+    /**
+     * @return the home that is used when no other home is being run on the thread
+     */
+    public static SmartHome getDefault() {
+        return defaultHome;
+    }
+
+    /**
+     * Makes the given home the current home of the calling thread, e.g. for a benchmark that calls the static methods directly instead of running a command file.
+     *
+     * @param home the home that is going to be the current home
+     * @return the previous current home of the thread, to be made current again afterwards
+     */
+    static SmartHome bind(SmartHome home) {
+        SmartHome previousHome = currentHome.get();
+        currentHome.set(home);
+        return previousHome;
+    }
+
+    /**
+     * Processes the given command file and writes its output to the given file, as a single run of the program would do.<br><br>
+     * The home is the current home of the calling thread while the commands are processed, the previous one is restored afterwards.<br><br>
+     * If the commands are terminated, e.g. because the first command is not a correct SetInitialTime, the rest of the file is skipped
+     * just like a single run of the program would stop, without affecting the other homes.
+     *
+     * @param inputPath  path of the command file
+     * @param outputPath path of the output file, which is created from zero
+     */
+    public void run(String inputPath, String outputPath) {
+        LineSource lines = Main.read(inputPath);
+        if (lines == null)
+            return;
+
+        run(lines, outputPath);
+    }
+
+    /**
+     * Processes the command lines of the given source and writes the output to the given file, like run(inputPath, outputPath) does for a file.
+     *
+     * @param lines      the trimmed, non-empty command lines, closed when all of them are processed
+     * @param outputPath path of the output file, which is created from zero
+     * @return the number of command lines that are processed
+     */
+    public int run(LineSource lines, String outputPath) {
+        return run(lines, outputPath, null);
+    }
+
+    /**
+     * Processes the command lines of the given source like run(lines, outputPath), counting every command in the given counter as it is processed.
+     *
+     * @param lines             the trimmed, non-empty command lines, closed when all of them are processed
+     * @param outputPath        path of the output file, which is created from zero
+     * @param processedCommands the counter of the processed commands, shared by many homes, null if they are not counted
+     * @return the number of command lines that are processed
+     */
+    public int run(LineSource lines, String outputPath, LongAdder processedCommands) {
+        SmartHome previousHome = bind(this);
+
+        try {
+            openOutput(outputPath);
+            return Main.manageCommands(lines, processedCommands);
+        } catch (TerminationException e) {
+            // the reason is already written to the output file of the home, only the first command is processed
+            return 1;
+        } finally {
+            closeOutput();
+            CommandMetrics.homeFinished(this);
+            bind(previousHome);
+        }
+    }
+
+    /**
+     * Opens the output sink of the home for the given path, which is kept open until closeOutput is called.
+     *
+     * @param outputPath Path for the file content is going to be written.
+     */
+    public void openOutput(String outputPath) {
+        closeOutput();
+
+        this.outputPath = outputPath;
+        sink = FileOutput.asyncOutput
+                ? new AsyncOutputSink(outputPath, FileOutput.bufferSize, FileOutput.asyncBuffers, FileOutput.flushPolicy)
+                : new OutputSink(outputPath, FileOutput.bufferSize, FileOutput.flushPolicy);
+    }
+
+    /**
+     * Flushes all the buffered content and closes the output file of the home.
+     */
+    public void closeOutput() {
+        if (sink != null)
+            sink.close();
+    }
+}
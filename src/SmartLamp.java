@@ -1,3 +1,7 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class SmartLamp extends SmartDevice{
     private int kelvinValue;
     private int brightnessPercentage;
@@ -12,6 +16,14 @@ public class SmartLamp extends SmartDevice{
         this.brightnessPercentage = 100;
     }
 
+    /**
+     * Creates a view of the lamp with the given id in the store.
+     */
+    SmartLamp(ColumnarDeviceStore store, int id) {
+        super(store, id);
+        this.deviceType = "Smart Lamp";
+    }
+
     /**
      Retrieves the SmartPlug object with the given device name string.
      @param name the name of the device object to retrieve
@@ -21,21 +33,7 @@ public class SmartLamp extends SmartDevice{
      @throws DeviceTypeException if the retrieved device is not a SmartLamp
      */
     public static SmartLamp getDevice(String name) throws DeviceNotFoundException, ErroneousCommandException, DeviceTypeException {
-        if (!doesExists(name))
-            throw new DeviceNotFoundException();
-
-        SmartDevice device = null;
-
-        for (SmartDevice currentDevice : smartDevices)
-            if (currentDevice.deviceName.equals(name)){
-                device = currentDevice;
-                break;
-            }
-
-        if (!(device instanceof SmartLamp))
-            throw new DeviceTypeException("smart lamp");
-
-        return (SmartLamp) device;
+        return getTypedDevice(name, SmartLamp.class, "smart lamp");
     }
 
     /**
@@ -44,16 +42,16 @@ public class SmartLamp extends SmartDevice{
      @throws ErroneousCommandException if value cannot be parsed to int
      @return value - the parsed int value of brightness or kelvin (or Integer.MAX_VALUE if the value is not given)
      */
-    public static int checkParseable(String valueStr) throws ErroneousCommandException{
+    public static int checkParseable(CharSequence valueStr) throws ErroneousCommandException{
         //the default value will be used only if both of values are not given
-        if(valueStr.equals("NotGiven"))
+        if("NotGiven".contentEquals(valueStr))
             return Integer.MAX_VALUE;
 
         //Otherwise, tries to parse the kelvin value and brightness value to int
         int value;
 
         try {
-            value = Integer.parseInt(valueStr);
+            value = CommandTokens.parseInt(valueStr);
         } catch (NumberFormatException e) {
             throw new ErroneousCommandException();
         }
@@ -71,11 +69,11 @@ public class SmartLamp extends SmartDevice{
         switch (mode) {
             case "Kelvin":
                 if(value < 2000 || value > 6500)
-                    throw new IllegalArgumentException("ERROR: Kelvin value must be in range of 2000K-6500K!");
+                    throw new InvalidArgumentException("ERROR: Kelvin value must be in range of 2000K-6500K!");
                 break;
             case "Brightness":
                 if(value < 0 || value > 100)
-                    throw new IllegalArgumentException("ERROR: Brightness must be in range of 0%-100%!");
+                    throw new InvalidArgumentException("ERROR: Brightness must be in range of 0%-100%!");
                 break;
             default:
                 break;
@@ -84,33 +82,31 @@ public class SmartLamp extends SmartDevice{
 
 
     /**
-     * Adds a new SmartLamp device to the ArrayList of smart devices.
+     * Adds a new SmartLamp device to the smart devices of the system.
      *
-     * @param line The command line input for adding a new SmartLamp device.
+     * @param args The arguments of the command line for adding a new SmartLamp device.
      */
-    public static void addSmartLamp(String line){
-        String[] args = line.split("\t");
-
+    public static void addSmartLamp(CommandTokens args){
         String deviceName = "";
         String initialStatus = "Off";
         String kelvinStr = "NotGiven";
         String brightnessStr = "NotGiven";
 
-        switch(args.length){
+        switch(args.count()){
             case 3:
-                deviceName = args[2];
+                deviceName = args.getString(2);
                 break;
 
             case 4:
-                deviceName = args[2];
-                initialStatus = args[3];
+                deviceName = args.getString(2);
+                initialStatus = args.getString(3);
                 break;
 
             case 6: //The case where kelvin value and brightness are given
-                deviceName = args[2];
-                initialStatus = args[3];
-                kelvinStr = args[4];
-                brightnessStr = args[5];
+                deviceName = args.getString(2);
+                initialStatus = args.getString(3);
+                kelvinStr = args.getString(4);
+                brightnessStr = args.getString(5);
                 break;
 
             default:
@@ -163,7 +159,11 @@ public class SmartLamp extends SmartDevice{
      * @param brightnessPercentage The brightness percentage of the SmartLamp.
      */
     public void setBrightnessPercentage(int brightnessPercentage) {
-        this.brightnessPercentage = brightnessPercentage;
+        if (store != null)
+            store.setBrightnessPercentage(id, brightnessPercentage);
+        else
+            this.brightnessPercentage = brightnessPercentage;
+        markDirty();
     }
 
     /**
@@ -171,21 +171,25 @@ public class SmartLamp extends SmartDevice{
      * @param kelvinValue The kelvin value of the SmartLamp.
      */
     public void setKelvinValue(int kelvinValue) {
-        this.kelvinValue = kelvinValue;
+        if (store != null)
+            store.setKelvinValue(id, kelvinValue);
+        else
+            this.kelvinValue = kelvinValue;
+        markDirty();
     }
 
     /**
      * Sets a new kelvin value for the SmartLamp from string
-     * @param line The command line input for setting a new kelvin value.
+     * @param args The arguments of the command line for setting a new kelvin value.
      */
-    public static void changeKelvin(String line){
+    public static void changeKelvin(CommandTokens args){
         String deviceName;
-        String kelvinStr;
+        CharSequence kelvinStr;
 
         try {
             try {
-                deviceName = line.split("\t")[1];
-                kelvinStr = line.split("\t")[2];
+                deviceName = args.getString(1);
+                kelvinStr = args.get(2);
             } catch (ArrayIndexOutOfBoundsException e){
                 throw new ErroneousCommandException();
             }
@@ -201,16 +205,16 @@ public class SmartLamp extends SmartDevice{
 
     /**
      * Sets a new brightness value for the SmartLamp from string
-     * @param line The command line input for setting a new brightness value.
+     * @param args The arguments of the command line for setting a new brightness value.
      */
-    public static void changeBrightness(String line){
+    public static void changeBrightness(CommandTokens args){
         String deviceName;
-        String brightnessStr;
+        CharSequence brightnessStr;
 
         try {
             try {
-                deviceName = line.split("\t")[1];
-                brightnessStr = line.split("\t")[2];
+                deviceName = args.getString(1);
+                brightnessStr = args.get(2);
             } catch (ArrayIndexOutOfBoundsException e){
                 throw new ErroneousCommandException();
             }
@@ -230,18 +234,18 @@ public class SmartLamp extends SmartDevice{
      * When processing the command, first checks if there's data type inconvenience (e.g. brightness is given as a string)
      * Then checks if the ranges of kelvin and brightness are correct
      * If both ranges are incorrect, gives an error message for the first one
-     * @param line The command line input for setting a new kelvin value and brightness value.
+     * @param args The arguments of the command line for setting a new kelvin value and brightness value.
      */
-    public static void changeWhite(String line) {
+    public static void changeWhite(CommandTokens args) {
         String deviceName;
-        String kelvinStr;
-        String brightnessStr;
+        CharSequence kelvinStr;
+        CharSequence brightnessStr;
 
         try {
             try {
-                deviceName = line.split("\t")[1];
-                kelvinStr = line.split("\t")[2];
-                brightnessStr = line.split("\t")[3];
+                deviceName = args.getString(1);
+                kelvinStr = args.get(2);
+                brightnessStr = args.get(3);
             } catch (ArrayIndexOutOfBoundsException e){
                 throw new ErroneousCommandException();
             }
@@ -258,23 +262,54 @@ public class SmartLamp extends SmartDevice{
         }
     }
 
+    /**
+     * Copies the kelvin value and brightness of the lamp after the state of the superclass.
+     */
+    @Override
+    protected void copyState(SmartDevice from) {
+        super.copyState(from);
+        SmartLamp lamp = (SmartLamp) from;
+        setKelvinValue(lamp.getKelvinValue());
+        setBrightnessPercentage(lamp.getBrightnessPercentage());
+    }
+
+    /**
+     * Writes the kelvin value and brightness of the lamp after the state of the superclass.
+     */
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        super.writeState(out);
+        out.writeInt(getKelvinValue());
+        out.writeInt(getBrightnessPercentage());
+    }
+
+    /**
+     * Reads the kelvin value and brightness of the lamp after the state of the superclass.
+     */
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        super.readState(in);
+        setKelvinValue(in.readInt());
+        setBrightnessPercentage(in.readInt());
+    }
+
     /**
      @return a string representation of the SmartLamp object
      */
     @Override
     public String toString() {
         return deviceType + " " +
-                deviceName + " is " +
+                getDeviceName() + " is " +
                 getStatus() +
-                " and its kelvin value is " + kelvinValue + "K with " + brightnessPercentage +"% brightness" +
-                ", and its time to switch its status is " + switchTime + ".";
+                " and its kelvin value is " + getKelvinValue() + "K with " + getBrightnessPercentage() +"% brightness" +
+                ", and its time to switch its status is " + Time.format(getSwitchTime()) + ".";
     }
 
     public int getKelvinValue() {
-        return kelvinValue;
+        return store == null ? kelvinValue : store.getKelvinValue(id);
     }
 
     public int getBrightnessPercentage() {
-        return brightnessPercentage;
+        return store == null ? brightnessPercentage : store.getBrightnessPercentage(id);
     }
 }//end of SmartLamp class
@@ -1,12 +1,16 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class SmartPlug extends SmartDevice {
     private double ampere;
     private int voltage;
     private double totalEnergyConsumption;
-    protected Time calculationStartTime;
+    protected long calculationStartTime;
 
     public SmartPlug(String deviceName) {
         this.deviceName = deviceName;
-        this.calculationStartTime = new Time();
+        this.calculationStartTime = Time.NONE;
         this.deviceType = "Smart Plug";
 
         //default values will be used while creating the device, but if user gave any of the values,
@@ -16,6 +20,14 @@ public class SmartPlug extends SmartDevice {
         this.totalEnergyConsumption = 0;
     }
 
+    /**
+     * Creates a view of the plug with the given id in the store.
+     */
+    SmartPlug(ColumnarDeviceStore store, int id) {
+        super(store, id);
+        this.deviceType = "Smart Plug";
+    }
+
     /**
      * Retrieves the SmartPlug object with the given device name string.
      *
@@ -26,22 +38,7 @@ public class SmartPlug extends SmartDevice {
      * @throws DeviceTypeException       if the retrieved device is not a SmartPlug
      */
     public static SmartPlug getDevice(String name) throws DeviceNotFoundException, ErroneousCommandException, DeviceTypeException {
-        if (!doesExists(name))
-            throw new DeviceNotFoundException();
-
-        SmartDevice device = null;
-
-        for (SmartDevice currentDevice : smartDevices)
-            if (currentDevice.deviceName.equals(name)) {
-                device = currentDevice;
-                break;
-            }
-
-
-        if (!(device instanceof SmartPlug))
-            throw new DeviceTypeException("smart plug");
-
-        return (SmartPlug) device;
+        return getTypedDevice(name, SmartPlug.class, "smart plug");
     }
 
     /**
@@ -51,54 +48,52 @@ public class SmartPlug extends SmartDevice {
      * @throws IllegalArgumentException  if ampere value is not a positive number
      * @throws ErroneousCommandException if ampere value cannot be parsed to double in the first place
      */
-    public void checkAmpere(String ampereStr) throws ErroneousCommandException {
+    public void checkAmpere(CharSequence ampereStr) throws ErroneousCommandException {
         //Just returns if the ampere value is not given at all, so that the default value of 0 is used for ampere
-        if (ampereStr.equals("NotGiven"))
+        if ("NotGiven".contentEquals(ampereStr))
             return;
 
         //Otherwise, tries to parse the ampere value to double
         double ampere;
 
         try {
-            ampere = Double.parseDouble(ampereStr);
+            ampere = CommandTokens.parseDouble(ampereStr);
         } catch (NumberFormatException e) {
             throw new ErroneousCommandException();
         }
 
         if (ampere <= 0)
-            throw new IllegalArgumentException("ERROR: Ampere value must be a positive number!");
+            throw new InvalidArgumentException("ERROR: Ampere value must be a positive number!");
 
         else
             setAmpere(ampere);
     }
 
     /**
-     * Adds a new SmartPlug device to the ArrayList of smart devices.
+     * Adds a new SmartPlug device to the smart devices of the system.
      *
-     * @param line The command line input for adding a new SmartPlug device.
+     * @param args The arguments of the command line for adding a new SmartPlug device.
      */
-    public static void addSmartPlug(String line) {
-        String[] args = line.split("\t");
-
+    public static void addSmartPlug(CommandTokens args) {
         String deviceName = "";
         String initialStatus = "Off";
         String ampereStr = "NotGiven";
 
 
-        switch (args.length) {
+        switch (args.count()) {
             case 3:
-                deviceName = args[2];
+                deviceName = args.getString(2);
                 break;
 
             case 4:
-                deviceName = args[2];
-                initialStatus = args[3];
+                deviceName = args.getString(2);
+                initialStatus = args.getString(3);
                 break;
 
             case 5: // The case where ampere value is given
-                deviceName = args[2];
-                initialStatus = args[3];
-                ampereStr = args[4];
+                deviceName = args.getString(2);
+                initialStatus = args.getString(3);
+                ampereStr = args.getString(4);
                 break;
 
             default: // The case where number of command arguments is different from allowed
@@ -122,8 +117,8 @@ public class SmartPlug extends SmartDevice {
         }
 
         //if initial status is on, then set the start time of the device
-        if (plug.isOn)
-            plug.calculationStartTime.setDateTime(Time.getCurrentTime().getDateTime());
+        if (plug.isOn())
+            plug.setCalculationStartTime(Time.getCurrentTime());
 
         addDevice(plug);
     }
@@ -136,21 +131,21 @@ public class SmartPlug extends SmartDevice {
      * If the given device is not a SmartPlug, gives an error message.<br>
      * If the device has already something plugged in, gives an error message.<br>
      *
-     * @param line the input line containing the name of the device and its ampere value separated by a tab
+     * @param args the arguments of the input line containing the name of the device and its ampere value separated by a tab
      */
-    public static void plugIn(String line) {
+    public static void plugIn(CommandTokens args) {
         String name = null;
-        String ampereStr;
+        CharSequence ampereStr;
         SmartPlug plug = null;
 
         try {
-            name = line.split("\t")[1];
-            ampereStr = line.split("\t")[2];
+            name = args.getString(1);
+            ampereStr = args.get(2);
             plug = getDevice(name);
 
             // check if the device is already plugged in
             if (plug.isSomethingPlugged())
-                throw new IllegalArgumentException("ERROR: There is already an item plugged in to that plug!");
+                throw new InvalidArgumentException("ERROR: There is already an item plugged in to that plug!");
 
             //check if the given ampere value is valid, if it is, then set the ampere value of the plug
             plug.checkAmpere(ampereStr);
@@ -165,8 +160,8 @@ public class SmartPlug extends SmartDevice {
 
 
         //if something is plugged in while plug is switched on, start timer
-        if (plug.isOn)
-            plug.calculationStartTime.setDateTime(Time.getCurrentTime().getDateTime());
+        if (plug.isOn())
+            plug.setCalculationStartTime(Time.getCurrentTime());
 
 
     }
@@ -177,19 +172,19 @@ public class SmartPlug extends SmartDevice {
      * If the given device is not a SmartPlug, gives an error message.<br>
      * If the device has nothing plugged in, gives an error message.<br>
      *
-     * @param line the input line containing the name of the device separated by a tab
+     * @param args the arguments of the input line containing the name of the device separated by a tab
      */
-    public static void plugOut(String line) {
+    public static void plugOut(CommandTokens args) {
         String name;
         SmartPlug plug = null;
 
         try {
-            name = line.split("\t")[1];
+            name = args.getString(1);
             plug = getDevice(name);
 
             // check if plug is already empty
             if (!plug.isSomethingPlugged())
-                throw new IllegalArgumentException("ERROR: This plug has no item to plug out from that plug!");
+                throw new InvalidArgumentException("ERROR: This plug has no item to plug out from that plug!");
         } catch (DeviceNotFoundException | ErroneousCommandException | DeviceTypeException |
                  IllegalArgumentException e) {
             write(e.getMessage());
@@ -198,13 +193,13 @@ public class SmartPlug extends SmartDevice {
 
 
         //Unplugging something is actually just setting the ampere value to 0
-        plug.ampere = 0;
+        plug.setAmpere(0);
 
         //calculate the consumption since the device is now removed from plug
         plug.calculateConsumption();
 
         //reset the calculation start time for next calculation
-        plug.calculationStartTime.setDateTime(null);
+        plug.setCalculationStartTime(Time.NONE);
 
     }
 
@@ -214,12 +209,22 @@ public class SmartPlug extends SmartDevice {
      * where time difference is the difference between the current time and the start time of the device in minutes.
      */
     public void calculateConsumption() {
+        SimulationEvents.UsageCalculation event = SimulationEvents.isRecording() ? SimulationEvents.begin(new SimulationEvents.UsageCalculation()) : null;
+
         double currentConsumption = 0;
-        long timeDifference = Time.getDifference(this.calculationStartTime, Time.getCurrentTime());
+        long timeDifference = Time.getDifference(getCalculationStartTime(), Time.getCurrentTime());
 
-        currentConsumption = (ampere * voltage * timeDifference) / (60);
+        currentConsumption = (getAmpere() * getVoltage() * timeDifference) / (60);
 
-        this.totalEnergyConsumption += currentConsumption;
+        setTotalEnergyConsumption(getTotalEnergyConsumption() + currentConsumption);
+
+        if (SimulationEvents.end(event)) {
+            event.device = getDeviceName();
+            event.deviceType = deviceType;
+            event.minutes = timeDifference;
+            event.amount = currentConsumption;
+            event.commit();
+        }
     }
 
     /**
@@ -227,7 +232,44 @@ public class SmartPlug extends SmartDevice {
      * false if it is equal to 0 (nothing plugged).
      */
     public boolean isSomethingPlugged() {
-        return ampere != 0;
+        return getAmpere() != 0;
+    }
+
+    /**
+     * Copies the ampere, voltage, consumption and calculation start time of the plug after the state of the superclass.
+     */
+    @Override
+    protected void copyState(SmartDevice from) {
+        super.copyState(from);
+        SmartPlug plug = (SmartPlug) from;
+        setAmpere(plug.getAmpere());
+        setVoltage(plug.getVoltage());
+        setTotalEnergyConsumption(plug.getTotalEnergyConsumption());
+        setCalculationStartTime(plug.getCalculationStartTime());
+    }
+
+    /**
+     * Writes the ampere, voltage, consumption and calculation start time of the plug after the state of the superclass.
+     */
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        super.writeState(out);
+        out.writeDouble(getAmpere());
+        out.writeInt(getVoltage());
+        out.writeDouble(getTotalEnergyConsumption());
+        out.writeLong(getCalculationStartTime());
+    }
+
+    /**
+     * Reads the ampere, voltage, consumption and calculation start time of the plug after the state of the superclass.
+     */
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        super.readState(in);
+        setAmpere(in.readDouble());
+        setVoltage(in.readInt());
+        setTotalEnergyConsumption(in.readDouble());
+        setCalculationStartTime(in.readLong());
     }
 
     /**
@@ -235,13 +277,17 @@ public class SmartPlug extends SmartDevice {
      */
     @Override
     public String toString() {
-        String formattedConsumptionString = String.format("%.02f", totalEnergyConsumption);
+        StringBuilder builder = new StringBuilder(160);
+
+        builder.append(deviceType).append(' ')
+                .append(getDeviceName()).append(" is ")
+                .append(getStatus())
+                .append(" and consumed ");
+        FixedPointFormat.appendTwoDecimals(builder, getTotalEnergyConsumption());
 
-        return deviceType + " " +
-                deviceName + " is " +
-                getStatus() +
-                " and consumed " + formattedConsumptionString + "W so far (excluding current device)" +
-                ", and its time to switch its status is " + switchTime + ".";
+        return builder.append("W so far (excluding current device)")
+                .append(", and its time to switch its status is ").append(Time.format(getSwitchTime())).append('.')
+                .toString();
     }
 
     /**
@@ -250,6 +296,56 @@ public class SmartPlug extends SmartDevice {
      * @param ampere The double value to be set for megabytesPerSecond.
      */
     public void setAmpere(double ampere) {
-        this.ampere = ampere;
+        if (store != null)
+            store.setAmpere(id, ampere);
+        else
+            this.ampere = ampere;
+    }
+
+    /**
+     * @return the ampere value of the device plugged in, 0 if nothing is plugged
+     */
+    public double getAmpere() {
+        return store == null ? ampere : store.getAmpere(id);
+    }
+
+    public int getVoltage() {
+        return store == null ? voltage : store.getVoltage(id);
+    }
+
+    public void setVoltage(int voltage) {
+        if (store != null)
+            store.setVoltage(id, voltage);
+        else
+            this.voltage = voltage;
+    }
+
+    public double getTotalEnergyConsumption() {
+        return store == null ? totalEnergyConsumption : store.getTotalEnergyConsumption(id);
+    }
+
+    /**
+     * Sets the total energy consumption, which is shown in the Z-Report.
+     */
+    public void setTotalEnergyConsumption(double totalEnergyConsumption) {
+        if (store != null)
+            store.setTotalEnergyConsumption(id, totalEnergyConsumption);
+        else
+            this.totalEnergyConsumption = totalEnergyConsumption;
+        markDirty();
+    }
+
+    /**
+     * @return the time the current consumption is calculated from, Time.NONE if it is not being calculated
+     */
+    protected long getCalculationStartTime() {
+        return store == null ? calculationStartTime : store.getCalculationStartTime(id);
+    }
+
+    protected void setCalculationStartTime(long calculationStartTime) {
+        if (store != null)
+            store.setCalculationStartTime(id, calculationStartTime);
+        else
+            this.calculationStartTime = calculationStartTime;
     }
 }// end of SmartPlug class
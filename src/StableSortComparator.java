@@ -0,0 +1,24 @@
+import java.util.Comparator;
+
+/**
+ * A custom comparator that is used to order the SmartDevices based on their switch times in ascending order and respects the relative order of them if their switch times are equal. <br><br>
+ * A device without a switch time has Time.NONE, which is later than any time, so devices with a switch time come first. <br><br>
+ * The relative order of devices with equal switch times (or without switch times) is kept in their scheduleOrder, which is given by the SwitchScheduler.
+ */
+class StableSortComparator implements Comparator<SmartDevice> {
+    /**
+     * Compares two SmartDevices based on their switch times in ascending order and respects the relative order of them if their switch times are equal.
+     *
+     * @param d1 the first object to be compared.
+     * @param d2 the second object to be compared.
+     * @return a negative integer, zero, or a positive integer as the first argument is less than, equal to, or greater than the second.
+     */
+    public int compare(SmartDevice d1, SmartDevice d2) {
+        int result = Long.compare(d1.getSwitchTime(), d2.getSwitchTime());
+
+        if (result != 0)
+            return result;
+
+        return Long.compare(d1.getScheduleOrder(), d2.getScheduleOrder());
+    }
+}
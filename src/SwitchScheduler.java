@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Keeps the smart devices ordered by their switch times, the way the device list used to be kept by sorting it after every change.<br><br>
+ * Devices are held in a balanced tree ordered with StableSortComparator, so that the device with the earliest switch time is found,
+ * and a device is rescheduled, in logarithmic time instead of sorting the whole list again.<br><br>
+ * The relative order the stable sort used to preserve is kept in each device's scheduleOrder:
+ * a device that moves to a group of equal switch times from an earlier position of the list is placed at the front of that group,
+ * and a device that moves there from a later position is placed at the back of it.
+ */
+public class SwitchScheduler implements Iterable<SmartDevice> {
+    private final TreeSet<SmartDevice> devices = new TreeSet<>(new StableSortComparator());
+
+    //orders that are handed out for the front of a group decrease, orders for the back of a group increase
+    private long frontOrder = 0;
+    private long backOrder = 0;
+
+    //number of devices that have a switch time
+    private int pendingSwitches = 0;
+
+    /**
+     * Adds a device that has no switch time, to the end of the devices, like appending it to the list.
+     *
+     * @param smartDevice the device to be added
+     */
+    public void add(SmartDevice smartDevice) {
+        smartDevice.switchTime = Time.NONE;
+        smartDevice.markDirty();
+        smartDevice.scheduleOrder = ++backOrder;
+        devices.add(smartDevice);
+    }
+
+    /**
+     * Removes the device from the scheduler, the order of the remaining devices is not changed.
+     *
+     * @param smartDevice the device to be removed
+     */
+    public void remove(SmartDevice smartDevice) {
+        if (devices.remove(smartDevice) && smartDevice.switchTime != Time.NONE)
+            pendingSwitches--;
+    }
+
+    /**
+     * Changes the switch time of the device and moves it to its new place in the order.
+     *
+     * @param smartDevice the device whose switch time is changed
+     * @param switchTime  the new switch time, Time.NONE if the device should not be switched anymore
+     */
+    public void setSwitchTime(SmartDevice smartDevice, long switchTime) {
+        long oldSwitchTime = smartDevice.switchTime;
+
+        // same switch time, the place of the device does not change
+        if (oldSwitchTime == switchTime)
+            return;
+
+        devices.remove(smartDevice);
+
+        if (oldSwitchTime == Time.NONE)
+            pendingSwitches++;
+        else if (switchTime == Time.NONE)
+            pendingSwitches--;
+
+        // the device was before the new group if its old time was earlier, otherwise it was after it
+        if (oldSwitchTime < switchTime)
+            smartDevice.scheduleOrder = --frontOrder;
+        else
+            smartDevice.scheduleOrder = ++backOrder;
+
+        smartDevice.switchTime = switchTime;
+        smartDevice.markDirty();
+        devices.add(smartDevice);
+    }
+
+    /**
+     * Removes the switch times of all the devices whose switch time is before or equal to the given time.<br><br>
+     * Those devices are placed at the front of the devices that have no switch time, keeping their relative order.
+     *
+     * @param currentTime the time the switch times are compared with
+     * @return the devices whose switch time has come, in the order of their switch times
+     */
+    public ArrayList<SmartDevice> pollDue(long currentTime) {
+        ArrayList<SmartDevice> dueDevices = new ArrayList<>();
+
+        while (!devices.isEmpty()) {
+            SmartDevice first = devices.first();
+
+            // Time.NONE is later than any time, so devices without a switch time are never due
+            if (first.switchTime > currentTime)
+                break;
+
+            devices.pollFirst();
+            dueDevices.add(first);
+        }
+
+        pendingSwitches -= dueDevices.size();
+        frontOrder -= dueDevices.size();
+        for (int i = 0; i < dueDevices.size(); i++) {
+            SmartDevice smartDevice = dueDevices.get(i);
+            smartDevice.switchTime = Time.NONE;
+            smartDevice.markDirty();
+            smartDevice.scheduleOrder = frontOrder + i;
+            devices.add(smartDevice);
+        }
+
+        return dueDevices;
+    }
+
+    /**
+     * Puts a device back to the place it had when it was saved in a checkpoint, with its switch time and its order.
+     *
+     * @param smartDevice   the device to be restored
+     * @param switchTime    the switch time of the device, Time.NONE if it has no switch time
+     * @param scheduleOrder the order of the device among the devices with the same switch time
+     */
+    public void restore(SmartDevice smartDevice, long switchTime, long scheduleOrder) {
+        smartDevice.switchTime = switchTime;
+        smartDevice.scheduleOrder = scheduleOrder;
+        smartDevice.markDirty();
+        devices.add(smartDevice);
+
+        if (switchTime != Time.NONE)
+            pendingSwitches++;
+    }
+
+    /**
+     * @return the last order handed out for the front of a group, saved in checkpoints
+     */
+    public long getFrontOrder() {
+        return frontOrder;
+    }
+
+    /**
+     * @return the last order handed out for the back of a group, saved in checkpoints
+     */
+    public long getBackOrder() {
+        return backOrder;
+    }
+
+    /**
+     * Restores the orders that are handed out next, as they were when they were saved in a checkpoint.
+     *
+     * @param frontOrder the last order handed out for the front of a group
+     * @param backOrder  the last order handed out for the back of a group
+     */
+    public void restoreOrders(long frontOrder, long backOrder) {
+        this.frontOrder = frontOrder;
+        this.backOrder = backOrder;
+    }
+
+    /**
+     * @return the device with the earliest switch time, or the first device if none of them has a switch time, null if there are no devices
+     */
+    public SmartDevice first() {
+        if (devices.isEmpty())
+            return null;
+
+        return devices.first();
+    }
+
+    /**
+     * @return true if there are no devices in the scheduler
+     */
+    public boolean isEmpty() {
+        return devices.isEmpty();
+    }
+
+    /**
+     * @return the number of devices in the scheduler
+     */
+    public int size() {
+        return devices.size();
+    }
+
+    /**
+     * @return the number of devices that have a switch time
+     */
+    public int pendingSwitches() {
+        return pendingSwitches;
+    }
+
+    /**
+     * @return an iterator over the devices in the order of their switch times, which is the order used in the Z-Report
+     */
+    @Override
+    public Iterator<SmartDevice> iterator() {
+        return devices.iterator();
+    }
+}
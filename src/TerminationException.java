@@ -0,0 +1,10 @@
+/**
+ * Thrown when the commands of a home cannot be processed any further, e.g. when the first command is not a correct SetInitialTime.<br><br>
+ * Only the processing of the current command file is stopped, instead of terminating the whole program with System.exit,
+ * so that the other homes that are run in the same JVM are not affected.
+ */
+public class TerminationException extends RuntimeException {
+    public TerminationException() {
+        super("Program is going to terminate!");
+    }
+}
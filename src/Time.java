@@ -1,67 +1,82 @@
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
-import static java.time.temporal.ChronoUnit.MINUTES;
-
 /**
- * The Time class represents a time in the format "yyyy-MM-dd_HH:mm:ss".<br><br>
- * Nevertheless, it can parse time strings in various formats, and check whether a given time
- * string is in the correct format.<br><br>
- * An integer, such as day or minute, can be given in format "3" instead of "03", it won't throw an error.
+ * The Time class keeps the clock of the program, and parses and formats times in the format "yyyy-MM-dd_HH:mm:ss".<br><br>
+ * Times are kept as primitive longs, the number of seconds since 1970-01-01_00:00:00, so that they can be compared and subtracted directly.
+ * They are converted to LocalDateTime only when they are formatted.<br><br>
+ * NONE is used as the time that is not set, e.g. the switch time of a device that is not going to be switched.<br><br>
+ * The initial time and the current time belong to the current SmartHome, so every home has a clock of its own.
  */
 
 public class Time {
 
-    //Start time for the program, can be set only once, must be set before any other command.
-    private static Time initialTime = new Time();
-
-    //The current time of the program. It is initialized with the initial time.
-    private static Time currentTime = new Time();
+    //The time that is not set. It is later than any other time, so that devices without a switch time come after the others.
+    public static final long NONE = Long.MAX_VALUE;
 
-    //The DateTimeFormatter used to parse time strings while creating Time objects.
+    //The DateTimeFormatter used to parse and format time strings.
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH:mm:ss");
 
+    //Size of the cache of formatted times, must be a power of two.
+    private static final int FORMAT_CACHE_SIZE = 256;
+
     /**
-     * The LocalDateTime represented by the current Time object, not static, bounded to the object.
-     **/
-    private LocalDateTime dateTime = null;
+     * A time and its formatted string, kept in the format cache. Immutable, so that the cache can be read without locking.
+     */
+    private static class FormattedTime {
+        private final long time;
+        private final String text;
+
+        private FormattedTime(long time, String text) {
+            this.time = time;
+            this.text = text;
+        }
+    }
+
+    //Recently formatted times, the current time and the switch times of the devices are formatted over and over in Z-Reports.
+    private static final FormattedTime[] formatCache = new FormattedTime[FORMAT_CACHE_SIZE];
 
     /**
-     * Creates a Time object from the given line after making necessary checks.
+     * Parses the given time argument after making necessary checks.
      *
-     * @param line The line to create the Time object from.
-     * @return The created Time object.
+     * @param timeString The time argument to be parsed.
+     * @return The parsed time in seconds.
      * @throws IllegalArgumentException If the time format is incorrect.
      */
-    public static Time createTimeObject(String line) {
-        Time newTime = new Time();
-        try {
-            newTime.setDateTime(parseToLocalDate(getTimeString(line)));
-        } catch (IllegalArgumentException ex) {
-            throw new IllegalArgumentException("ERROR: Time format is not correct!");
-        }
-        return newTime;
+    public static long parseTime(CharSequence timeString) {
+        long time = parseToEpochSecond(timeString);
+
+        if (time == NONE)
+            throw new InvalidArgumentException("ERROR: Time format is not correct!");
+
+        return time;
     }
 
     /**
      * Sets the initial time for the program. Can be used once and before any other command, otherwise an error message will be displayed.
      *
-     * @param line The line containing the initial time to set.
+     * @param timeString The time argument of the command, containing the initial time to set.
+     * @throws TerminationException if the initial time is not in the correct format
      */
-    public static void setInitialTime(String line) {
+    public static void setInitialTime(CharSequence timeString) {
+        SmartHome home = SmartHome.current();
+
         // if there is no initial time, set it
-        if (initialTime.dateTime == null) {
-            try {
-                initialTime.dateTime = parseToLocalDate(getTimeString(line));
-            } catch (IllegalArgumentException ex) {
+        if (home.initialTime == NONE) {
+            home.initialTime = parseToEpochSecond(timeString);
+
+            if (home.initialTime == NONE) {
                 write("ERROR: Format of the initial date is wrong! Program is going to terminate!");
-                System.exit(0);
+                throw new TerminationException();
             }
 
-            currentTime.dateTime = initialTime.dateTime;
-            write("SUCCESS: Time has been set to " + initialTime.toString() + "!");
+            home.currentTime = home.initialTime;
+            write("SUCCESS: Time has been set to " + format(home.initialTime) + "!");
         } else
             write("ERROR: Erroneous command!");
     }
@@ -71,12 +86,12 @@ public class Time {
      * If the specified number of minutes is negative or zero, an error message will be displayed.
      * Otherwise, it'll call the setCurrentTime method to set the new current time.
      *
-     * @param line a String containing the command to skip minutes, and the number of minutes to skip.
+     * @param args the arguments of the command to skip minutes, containing the number of minutes to skip.
      */
-    public static void skipMinutes(String line) {
+    public static void skipMinutes(CommandTokens args) {
         int minutes;
         try {
-            minutes = Integer.parseInt(line.split("\t")[1]);
+            minutes = CommandTokens.parseInt(args.get(1));
         } catch (NumberFormatException ex) {
             write("ERROR: Erroneous command!");
             return;
@@ -87,91 +102,77 @@ public class Time {
             return;
         }
 
-        LocalDateTime skipTime = currentTime.dateTime.plusMinutes(minutes);
-        Time newTime = new Time();
-        newTime.setDateTime(skipTime);
-        setCurrentTime(newTime);
+        setCurrentTime(getCurrentTime() + minutes * 60L);
     }
 
     /**
-     * Sets the current time to the given Time object, and updates the state of the Smart Devices accordingly.<br><br>
+     * Sets the current time to the given time, and updates the state of the Smart Devices accordingly.<br><br>
      * If the given time is before the current time, an error message will be displayed.<br><br>
      * If the given time is the same as the current time, no action is taken.<br><br>
      * If the given time is after the current time, Smart Devices will be switched on/off accordingly.<br><br>
      *
-     * @param newTime a Time object representing the new current time.
+     * @param newTime the new current time in seconds.
      */
-    public static void setCurrentTime(Time newTime) {
-        if (newTime.dateTime.isEqual(currentTime.dateTime)) {
+    public static void setCurrentTime(long newTime) {
+        long currentTime = getCurrentTime();
+
+        if (newTime == currentTime) {
             write("ERROR: There is nothing to change!");
             return;
         }
 
         // if the new time is already past, it won't be accepted
-        else if (!newTime.dateTime.isBefore(currentTime.dateTime)) {
-            //nop if there are switches before the new time
-            while (SmartDevice.getFirstSwitchTime() != null && SmartDevice.getFirstSwitchTime().getDateTime().isBefore(newTime.getDateTime()))
-                SmartDevice.nop();
+        else if (newTime > currentTime)
+            advanceTo(newTime);
 
-            currentTime = newTime;
-            SmartDevice.switchDevices();
-        } else
+        else
             write("ERROR: Time cannot be reversed!");
     }
 
     /**
-     * Creates a Time object from given command string if command is correct<br><br>
-     * Sets the current time to the new Time object, and updates the state of the Smart Devices accordingly.<br><br>
+     * Parses the new time from given command string if command is correct<br><br>
+     * Sets the current time to the new time, and updates the state of the Smart Devices accordingly.<br><br>
      * If the given time is before the current time, an error message will be displayed.<br><br>
      * If the given time is the same as the current time, an error message will be displayed.<br><br>
      * If the given time is after the current time, current time is updated Smart Devices will be switched on/off if necessary.<br><br>
      *
-     * @param line the command string that includes the new time.
+     * @param args the arguments of the command that include the new time.
      */
-    public static void setCurrentTime(String line) {
-        Time newTime;
+    public static void setCurrentTime(CommandTokens args) {
+        long currentTime = getCurrentTime();
+        long newTime;
         try {
-            newTime = createTimeObject(line);
+            newTime = parseTime(args.get(1));
 
             // if the new time is the same as the current time, illegal argument exception is thrown
-            if (newTime.dateTime.isEqual(currentTime.dateTime))
-                throw new IllegalArgumentException("ERROR: There is nothing to change!");
+            if (newTime == currentTime)
+                throw new InvalidArgumentException("ERROR: There is nothing to change!");
 
             // if the new time is already past, it won't be accepted
-            if (newTime.dateTime.isBefore(currentTime.dateTime))
-                throw new IllegalArgumentException("ERROR: Time cannot be reversed!");
+            if (newTime < currentTime)
+                throw new InvalidArgumentException("ERROR: Time cannot be reversed!");
         } catch (IllegalArgumentException ex) {
             write(ex.getMessage());
             return;
         }
 
-        //nop if there are switches before the new time
-        while (SmartDevice.getFirstSwitchTime() != null && SmartDevice.getFirstSwitchTime().getDateTime().isBefore(newTime.getDateTime()))
-            SmartDevice.nop();
-
-        currentTime = newTime;
-        SmartDevice.switchDevices();
+        advanceTo(newTime);
     }
 
     /**
-     * Calculates the difference in minutes between two Time objects.
+     * Calculates the difference in complete minutes between two times.
      *
-     * @param time1 the first Time object.
-     * @param time2 the second Time object.
-     * @return the difference in minutes between the two Time objects (never returns a negative difference). <br><br>
-     * If either of the Time objects is null, -1 is returned.
+     * @param time1 the first time in seconds.
+     * @param time2 the second time in seconds.
+     * @return the difference in minutes between the two times (never returns a negative difference). <br><br>
+     * If either of the times is NONE, -1 is returned.
      */
-    public static long getDifference(Time time1, Time time2) {
-        Long duration = null;
-        try {
-            LocalDateTime localTime1 = time1.dateTime;
-            LocalDateTime localTime2 = time2.dateTime;
-            duration = MINUTES.between(localTime1, localTime2);
-        } catch (NullPointerException e) {
+    public static long getDifference(long time1, long time2) {
+        if (time1 == NONE || time2 == NONE)
             return -1;
-        }
 
-        return Math.abs(duration);
+        // division truncates toward zero, so only complete minutes are counted
+        return Math.abs((time2 - time1) / 60);
     }
 
     /* Simple Getters and Setters (That does not have any checks, not used with command lines */
@@ -179,93 +180,211 @@ public class Time {
     /**
      * Returns the current time.
      *
-     * @return a Time object representing the current time.
+     * @return the current time in seconds.
      */
-    public static Time getCurrentTime() {
-        return currentTime;
+    public static long getCurrentTime() {
+        return SmartHome.current().currentTime;
     }
 
     /**
      * Returns the initial time when the simulation was started.
      *
-     * @return a Time object representing the initial time.
+     * @return the initial time in seconds.
      */
-    public static Time getInitialTime() {
-        return initialTime;
+    public static long getInitialTime() {
+        return SmartHome.current().initialTime;
     }
 
+    /* Private Methods That Are For In-Class Use Only  */
+
     /**
-     * Returns the LocalDateTime object of this Time object.
-     * This method is replaced by direct comparison within the class.
+     * Moves the current time forward to the given time in a single pass over the due switches.<br><br>
+     * Every group of switches that are due before the new time is fired with the current time set to its own switch time,
+     * which is what a nop for each of them would do, so that consumptions and usages are calculated until the right time.<br><br>
+     * Only the devices whose switch times have come are visited, no matter how far the time is moved.
      *
-     * @return a LocalDateTime object representing the time of this Time object.
+     * @param newTime the new current time in seconds, must not be before the current time.
      */
-    public LocalDateTime getDateTime() {
-        return this.dateTime;
+    private static void advanceTo(long newTime) {
+        SmartHome home = SmartHome.current();
+        long previousTime = home.currentTime;
+        long switchTime;
+        int switchGroups = 0;
+        int switchedDevices = 0;
+
+        SimulationEvents.TimeAdvance event = SimulationEvents.isRecording() ? SimulationEvents.begin(new SimulationEvents.TimeAdvance()) : null;
+
+        // a device without a switch time has NONE, which is never before the new time
+        while ((switchTime = SmartDevice.getFirstSwitchTime()) < newTime) {
+            home.currentTime = switchTime;
+            switchedDevices += SmartDevice.switchDevices();
+            switchGroups++;
+        }
+
+        home.currentTime = newTime;
+        int switchedAtNewTime = SmartDevice.switchDevices();
+        if (switchedAtNewTime > 0) {
+            switchedDevices += switchedAtNewTime;
+            switchGroups++;
+        }
+
+        if (SimulationEvents.end(event)) {
+            event.from = format(previousTime);
+            event.to = format(newTime);
+            event.minutes = getDifference(previousTime, newTime);
+            event.switchGroups = switchGroups;
+            event.switchedDevices = switchedDevices;
+            event.commit();
+        }
     }
 
     /**
-     * Sets the LocalDateTime bounded to this Time object.
+     * Writes the given content to the output file. (appends to file, adds a new line)
      *
-     * @param dateTime The LocalDateTime object representing the time to set.
+     * @param content the content to be written to the output file
      */
-    public void setDateTime(LocalDateTime dateTime) {
-        this.dateTime = dateTime;
+    private static void write(String content) {
+        FileOutput.write(content);
     }
 
-    /* Private Methods That Are For In-Class Use Only  */
+    /**
+     * Parses the given time string in the format "yyyy-MM-dd_HH:mm:ss", without throwing an exception if it is not in that format.<br><br>
+     * Time strings with a four-digit year are parsed and validated by hand in a single pass, with the same results as parsing them with the formatter:
+     * a day that is after the end of the month is moved back to the last day of the month, and "24:00:00" is the start of the next day.<br><br>
+     * Only the time strings with longer years are passed to the formatter.
+     *
+     * @param timeString The time string to parse.
+     * @return The time in seconds, NONE if the time string is not in the correct format.
+     */
+    private static long parseToEpochSecond(CharSequence timeString) {
+        // a time argument of a pre-compiled command is already parsed
+        long attachedTime = CommandTokens.attachedTime(timeString);
+        if (attachedTime != NONE)
+            return attachedTime;
+
+        int length = timeString.length();
+
+        if (length < 19)
+            return NONE;
+
+        // only a year with more than four digits can make the time string longer
+        if (length > 19)
+            return parseWithFormatter(timeString);
+
+        if (timeString.charAt(4) != '-' || timeString.charAt(7) != '-' || timeString.charAt(10) != '_' ||
+                timeString.charAt(13) != ':' || timeString.charAt(16) != ':')
+            return NONE;
+
+        int year = parseDigits(timeString, 0, 4);
+        int month = parseDigits(timeString, 5, 7);
+        int day = parseDigits(timeString, 8, 10);
+        int hour = parseDigits(timeString, 11, 13);
+        int minute = parseDigits(timeString, 14, 16);
+        int second = parseDigits(timeString, 17, 19);
+
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 24 || minute < 0 || minute > 59 || second < 0 || second > 59)
+            return NONE;
+
+        // "24:00:00" is the only valid time with hour 24
+        if (hour == 24 && (minute != 0 || second != 0))
+            return NONE;
+
+        day = Math.min(day, Month.of(month).length(Year.isLeap(year)));
+
+        return LocalDate.of(year, month, day).toEpochDay() * 86400 + hour * 3600 + minute * 60 + second;
+    }
 
     /**
-     * Writes the given content to the output file. (appends to file, adds a new line)
+     * Parses the digits between the given indexes of the time string.
      *
-     * @param content the content to be written to the output file
+     * @return the parsed value, -1 if there is a character that is not a digit.
      */
-    private static void write(String content) {
-        FileOutput.write(content);
+    private static int parseDigits(CharSequence timeString, int start, int end) {
+        int value = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = timeString.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+
+            value = value * 10 + (c - '0');
+        }
+        return value;
     }
 
     /**
-     * Checks whether the given time string is in the correct format.
+     * Parses the given time string with the formatter, which is only needed for unusual time strings.
      *
-     * @param timeString The time string to check.
-     * @return The LocalDateTime object representing the time string.
-     * @throws IllegalArgumentException If the time string is not in the correct format.
+     * @return The time in seconds, NONE if the time string is not in the correct format.
      */
-    private static LocalDateTime parseToLocalDate(String timeString) throws IllegalArgumentException {
+    private static long parseWithFormatter(CharSequence timeString) {
         try {
-            return LocalDateTime.parse(timeString, formatter);
+            return LocalDateTime.parse(timeString, formatter).toEpochSecond(ZoneOffset.UTC);
         } catch (DateTimeParseException ex) {
-            throw new IllegalArgumentException();
+            return NONE;
         }
     }
 
     /**
-     * Splits the given command line regarding time and extracts the first parseable time string.
+     * Returns a string representation of the given time in the format "yyyy-MM-dd_HH:mm:ss".<br><br>
+     * Recently formatted times are kept in a small cache, so the same time is not formatted again for every device in a Z-Report.
      *
-     * @param line The command line to extract the time string from.
-     * @return The first time string encountered, "No time string found!" if there's no valid time string.
+     * @param time the time in seconds
+     * @return a string representation of the time, "null" if the time is NONE
      */
-    private static String getTimeString(String line) {
-        String[] splitLine = line.split("\t");
-        for (String keyword : splitLine) {
-            try {
-                LocalDateTime.parse(keyword, formatter);
-                return keyword;
-            } catch (DateTimeParseException e) {
-                //ignore the exception and try next keyword
-                continue;
-            }
-        }
-        return "No time string found!";
+    public static String format(long time) {
+        if (time == NONE)
+            return "null";
+
+        int slot = Long.hashCode(time * 0x9E3779B97F4A7C15L) & (FORMAT_CACHE_SIZE - 1);
+        FormattedTime cached = formatCache[slot];
+
+        if (cached != null && cached.time == time)
+            return cached.text;
+
+        String text = formatDigits(time);
+        formatCache[slot] = new FormattedTime(time, text);
+        return text;
     }
 
     /**
-     * Returns a string representation of this Time object in the format "yyyy-MM-dd_HH:mm:ss".
+     * Formats the given time by writing its digits directly, the inverse of parseToEpochSecond.<br><br>
+     * Only the times with a four-digit year are written by hand, the others are passed to the formatter.
      *
-     * @return a string representation of this Time object
+     * @param time the time in seconds
+     * @return a string representation of the time in the format "yyyy-MM-dd_HH:mm:ss"
      */
-    @Override
-    public String toString() {
-        return this.dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH:mm:ss"));
+    private static String formatDigits(long time) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(time, 86400));
+        int secondOfDay = Math.floorMod(time, 86400);
+        int year = date.getYear();
+
+        if (year < 1 || year > 9999)
+            return LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC).format(formatter);
+
+        char[] chars = new char[19];
+        writeDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, date.getMonthValue(), 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, date.getDayOfMonth(), 2);
+        chars[10] = '_';
+        writeDigits(chars, 11, secondOfDay / 3600, 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, secondOfDay / 60 % 60, 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, secondOfDay % 60, 2);
+
+        return new String(chars);
+    }
+
+    /**
+     * Writes the given value with the given number of digits, padded with zeros.
+     */
+    private static void writeDigits(char[] chars, int start, int value, int digits) {
+        for (int i = start + digits - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
     }
 }//end of Time class
\ No newline at end of file
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that an AsyncOutputSink writes the same file as an OutputSink for random content, with surrogate pairs split between writes,
+ * truncating writes, flushes, ZReport boundaries and reopening after close, for every flush policy and for tiny and default blocks.<br><br>
+ * The tests are run with UTF-8 as the default charset, which the sinks encode with.
+ */
+class AsyncOutputSinkTest {
+    private static final String[] PIECES = {"COMMAND: ", "SUCCESS", "\t", " ", "a", "0.00", "é", "€", "ı", "𝄞", "😀", "\uD83D", "\uDE00", "x\uD800y"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesTheSameFileAsOutputSink() throws IOException {
+        for (OutputSink.FlushPolicy flushPolicy : OutputSink.FlushPolicy.values()) {
+            for (int blockSize : new int[]{16, OutputSink.DEFAULT_BUFFER_SIZE}) {
+                for (long seed = 0; seed < 20; seed++) {
+                    Path expected = directory.resolve("expected.txt");
+                    Path actual = directory.resolve("actual.txt");
+                    // the first write creates the files from zero, whatever they had
+                    Files.write(expected, new byte[100]);
+                    Files.write(actual, new byte[100]);
+
+                    OutputSink sink = new OutputSink(expected.toString(), blockSize, flushPolicy);
+                    AsyncOutputSink asyncSink = new AsyncOutputSink(actual.toString(), blockSize, 2 + (int) (seed % 2), flushPolicy);
+                    String message = flushPolicy + ", block size " + blockSize + ", seed " + seed;
+
+                    writeRandomly(new Random(seed), sink, asyncSink, expected, actual, message);
+                    sink.close();
+                    asyncSink.close();
+
+                    assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual), message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the same random content to both sinks, and compares the files whenever both of them are flushed.
+     */
+    private static void writeRandomly(Random random, OutputSink sink, AsyncOutputSink asyncSink, Path expected, Path actual, String message) throws IOException {
+        boolean append = false;
+
+        for (int i = 0; i < 400; i++) {
+            int operation = random.nextInt(40);
+
+            if (operation == 0) {
+                sink.flush();
+                asyncSink.flush();
+                assertEquals(sink.length(), asyncSink.length(), message);
+                assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual), message);
+            } else if (operation == 1) {
+                sink.close();
+                asyncSink.close();
+            } else if (operation < 5) {
+                sink.reportBoundary();
+                asyncSink.reportBoundary();
+            } else {
+                String content = randomContent(random);
+                boolean newLine = random.nextInt(3) != 0;
+                sink.write(content, append, newLine);
+                asyncSink.write(content, append, newLine);
+                append = random.nextInt(50) != 0;
+            }
+        }
+    }
+
+    /**
+     * @return content of random pieces, which ends with the high half of a surrogate pair now and then, or starts with the low half of one,
+     * and is now and then longer than the characters the sink encodes at once
+     */
+    private static String randomContent(Random random) {
+        StringBuilder content = new StringBuilder();
+        if (random.nextInt(20) == 0)
+            content.append("a".repeat(random.nextInt(3))).append("😀".repeat(700));
+        for (int i = random.nextInt(12); i > 0; i--)
+            content.append(PIECES[random.nextInt(PIECES.length)]);
+
+        if (random.nextInt(4) == 0)
+            content.append('\uD83D');
+        if (random.nextInt(4) == 0)
+            content.insert(0, '\uDE00');
+        return content.toString();
+    }
+}
@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a command file compiled by the CommandCompiler gives the same lines and the same output as the text file it is compiled from.
+ */
+class BinaryLineSourceTest {
+    private static final String[] NAMES = {"Lamp 1", "D1", "D2", "Kamera", "Işık", "Plug"};
+    private static final String[] NUMBERS = {"0", "5", "-1", "05", "+3", "2147483648", "2.5", "1.50", "1e3", "abc"};
+    private static final String[] COLORS = {"0xFF00AA", "0xff00aa", "0x00FF00", "0x1000000", "0xZZ", "3000"};
+    private static final String[] TIMES = {"2023-03-31_14:00:00", "2023-03-31_14:30:15", "2023-04-01_00:00:00", "2023-3-31_14:00:00", "2023-13-01_10:00:00"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheLinesOfTheTextFile() throws IOException {
+        Path text = writeCommands(new Random(18), 5_000);
+        Path binary = directory.resolve("commands.bin");
+        CommandCompiler.compile(text.toString(), binary.toString());
+
+        LineSource expected = new BufferedLineSource(text.toString(), true, true);
+        LineSource actual = new BinaryLineSource(binary.toString());
+        try {
+            String line;
+            while ((line = expected.nextLine()) != null)
+                assertEquals(line, actual.nextLine());
+            assertNull(actual.nextLine());
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
+    @Test
+    void writesTheOutputOfTheTextFile() throws IOException {
+        for (int seed = 0; seed < 20; seed++) {
+            Path text = writeCommands(new Random(seed), 500);
+            Path binary = directory.resolve("commands.bin");
+            CommandCompiler.compile(text.toString(), binary.toString());
+
+            Path textOutput = directory.resolve("text.out");
+            Path binaryOutput = directory.resolve("binary.out");
+            new SmartHome().run(new BufferedLineSource(text.toString(), true, true), textOutput.toString());
+            new SmartHome().run(new BinaryLineSource(binary.toString()), binaryOutput.toString());
+
+            assertArrayEquals(Files.readAllBytes(textOutput), Files.readAllBytes(binaryOutput), "seed " + seed);
+        }
+    }
+
+    @Test
+    void reportsAFileThatEndsInTheMiddleOfACommand() throws IOException {
+        Path text = writeCommands(new Random(1), 50);
+        Path binary = directory.resolve("commands.bin");
+        CommandCompiler.compile(text.toString(), binary.toString());
+
+        try (RandomAccessFile file = new RandomAccessFile(binary.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        LineSource lines = new BinaryLineSource(binary.toString());
+        try {
+            assertThrows(UncheckedIOException.class, () -> {
+                while (lines.nextLine() != null)
+                    ;
+            });
+        } finally {
+            lines.close();
+        }
+    }
+
+    /**
+     * Writes a command file with random commands, with well-formed and broken arguments of every kind the compiler packs, and some blank lines.
+     */
+    private Path writeCommands(Random random, int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("SetInitialTime\t2023-03-31_14:00:00");
+
+        for (int i = 0; i < count; i++) {
+            String name = pick(random, NAMES);
+            switch (random.nextInt(12)) {
+                case 0:
+                    lines.add("Add\tSmartPlug\t" + name + "\t" + pick(random, "On", "Off") + "\t" + pick(random, NUMBERS));
+                    break;
+                case 1:
+                    lines.add("Add\tSmartCamera\t" + name + "\t" + pick(random, NUMBERS) + "\t" + pick(random, "On", "Off"));
+                    break;
+                case 2:
+                    lines.add("Add\tSmartLamp\t" + name + "\t" + pick(random, "On", "Off") + "\t" + pick(random, NUMBERS) + "\t" + pick(random, NUMBERS));
+                    break;
+                case 3:
+                    lines.add("Add\tSmartColorLamp\t" + name + "\t" + pick(random, "On", "Off") + "\t" + pick(random, COLORS) + "\t" + pick(random, NUMBERS));
+                    break;
+                case 4:
+                    lines.add("SetSwitchTime\t" + name + "\t" + pick(random, TIMES));
+                    break;
+                case 5:
+                    lines.add("SetTime\t" + pick(random, TIMES));
+                    break;
+                case 6:
+                    lines.add("SkipMinutes\t" + pick(random, NUMBERS));
+                    break;
+                case 7:
+                    lines.add("PlugIn\t" + name + "\t" + pick(random, NUMBERS));
+                    break;
+                case 8:
+                    lines.add("SetColorCode\t" + name + "\t" + pick(random, COLORS));
+                    break;
+                case 9:
+                    lines.add("Switch\t" + name + "\t" + pick(random, "On", "Off", "on"));
+                    break;
+                case 10:
+                    lines.add(pick(random, "Nop", "ZReport", "Unknown\t" + name, "  ", "Remove\t" + name));
+                    break;
+                default:
+                    lines.add("ChangeName\t" + name + "\t" + pick(random, NAMES));
+                    break;
+            }
+        }
+
+        Path text = directory.resolve("commands.txt");
+        Files.write(text, lines, StandardCharsets.UTF_8);
+        return text;
+    }
+
+    private static String pick(Random random, String... values) {
+        return values[random.nextInt(values.length)];
+    }
+}
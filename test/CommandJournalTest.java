@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a home that is stopped partway and started again with its CommandJournal writes the same output as a run that is not stopped,
+ * and that a checkpoint that is left over from another input or output is not restored.
+ */
+class CommandJournalTest {
+    private static final int INTERVAL = 100;
+    private static final int COMMANDS = 3_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesLikeAnUninterruptedRun() throws IOException {
+        Path script = writeScript("script.txt", 22);
+        byte[] expected = runWithoutJournal(script);
+
+        // stopped before the first checkpoint, right at a checkpoint, and between checkpoints
+        for (int stopAfter : new int[]{1, 7, INTERVAL, INTERVAL + 1, 999, 2_345, COMMANDS - 1}) {
+            Path journal = directory.resolve("journal-" + stopAfter);
+            Path output = directory.resolve("output-" + stopAfter + ".txt");
+
+            runAndStop(script, output, journal, stopAfter);
+
+            // a command that was being logged and a checkpoint that was being written when the run stopped are left out
+            Files.write(journal.resolve("commands.log"), "Switch\tDev".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            Files.write(journal.resolve("checkpoint.bin.tmp"), new byte[]{1, 2, 3});
+
+            runWithJournal(script, output, journal);
+            assertArrayEquals(expected, Files.readAllBytes(output), "stopped after " + stopAfter);
+            assertFalse(Files.exists(journal.resolve("checkpoint.bin")));
+            assertFalse(Files.exists(journal.resolve("commands.log")));
+        }
+    }
+
+    @Test
+    void resumesAfterStoppingTwice() throws IOException {
+        Path script = writeScript("script.txt", 23);
+        Path journal = directory.resolve("journal");
+        Path output = directory.resolve("output.txt");
+
+        runAndStop(script, output, journal, 850);
+        runAndStop(script, output, journal, 1_730);
+        runWithJournal(script, output, journal);
+
+        assertArrayEquals(runWithoutJournal(script), Files.readAllBytes(output));
+    }
+
+    @Test
+    void ignoresACheckpointOfAnotherInput() throws IOException {
+        Path script = writeScript("script.txt", 24);
+        Path otherScript = writeScript("other.txt", 25);
+        Path journal = directory.resolve("journal");
+        Path output = directory.resolve("output.txt");
+
+        runAndStop(script, output, journal, 1_234);
+        assertTrue(Files.exists(journal.resolve("checkpoint.bin")));
+
+        runWithJournal(otherScript, output, journal);
+        assertArrayEquals(runWithoutJournal(otherScript), Files.readAllBytes(output));
+    }
+
+    @Test
+    void ignoresACheckpointOfAnotherOutput() throws IOException {
+        Path script = writeScript("script.txt", 26);
+        Path journal = directory.resolve("journal");
+
+        runAndStop(script, directory.resolve("output.txt"), journal, 1_234);
+
+        Path otherOutput = directory.resolve("other-output.txt");
+        runWithJournal(script, otherOutput, journal);
+        assertArrayEquals(runWithoutJournal(script), Files.readAllBytes(otherOutput));
+    }
+
+    @Test
+    void ignoresACheckpointWhoseOutputIsCut() throws IOException {
+        Path script = writeScript("script.txt", 27);
+        Path journal = directory.resolve("journal");
+        Path output = directory.resolve("output.txt");
+
+        runAndStop(script, output, journal, 1_234);
+        try (RandomAccessFile file = new RandomAccessFile(output.toFile(), "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        runWithJournal(script, output, journal);
+        assertArrayEquals(runWithoutJournal(script), Files.readAllBytes(output));
+    }
+
+    /**
+     * Runs the script until the given number of commands is processed and stops it with a read error, which closes the journal without completing it.
+     */
+    private static void runAndStop(Path script, Path output, Path journal, int stopAfter) throws IOException {
+        SmartHome home = new SmartHome();
+        home.journal = new CommandJournal(journal.toString(), script.toString(), INTERVAL);
+
+        LineSource lines = new BufferedLineSource(script.toString(), true, true);
+        LineSource stopping = new LineSource() {
+            private int count = 0;
+
+            @Override
+            public String nextLine() {
+                if (count++ == stopAfter)
+                    throw new UncheckedIOException(new IOException("stopped"));
+                return lines.nextLine();
+            }
+
+            @Override
+            public void close() {
+                lines.close();
+            }
+        };
+
+        assertThrows(UncheckedIOException.class, () -> home.run(stopping, output.toString()));
+    }
+
+    private static void runWithJournal(Path script, Path output, Path journal) throws IOException {
+        SmartHome home = new SmartHome();
+        home.journal = new CommandJournal(journal.toString(), script.toString(), INTERVAL);
+        home.run(new BufferedLineSource(script.toString(), true, true), output.toString());
+    }
+
+    private byte[] runWithoutJournal(Path script) throws IOException {
+        Path output = directory.resolve("expected.txt");
+        new SmartHome().run(new BufferedLineSource(script.toString(), true, true), output.toString());
+        return Files.readAllBytes(output);
+    }
+
+    private Path writeScript(String name, long seed) throws IOException {
+        Path script = directory.resolve(name);
+        try (Writer writer = Files.newBufferedWriter(script)) {
+            new ScriptGenerator(12, COMMANDS, 0.1, 3 * 24 * 60, seed).writeTo(writer);
+        }
+        return script;
+    }
+}
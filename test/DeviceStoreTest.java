@@ -0,0 +1,153 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a home with a ColumnarDeviceStore writes the same output and captures the same checkpoints as a home with an ObjectDeviceStore,
+ * for scripts with renamed, removed and re-added devices and devices that switch at the same time.
+ */
+class DeviceStoreTest {
+    private static final int DEVICES = 16;
+    private static final String[] ADD_COMMANDS = {"Add\tSmartPlug\t%s\tOn", "Add\tSmartCamera\t%s\t3\tOff", "Add\tSmartLamp\t%s\tOn\t3000\t50",
+            "Add\tSmartColorLamp\t%s\tOff\t0xFF00AA\t40"};
+    //times far after the script, so that devices are pending at the same time and switched together
+    private static final String[] TIES = {"2024-01-01_00:00:00", "2024-01-01_00:00:00", "2024-01-01_00:30:00", "2024-01-02_00:00:00"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void columnarStoreGivesTheSameOutputAndCheckpoints() throws IOException {
+        for (long seed = 0; seed < 10; seed++) {
+            List<byte[]> objectCheckpoints = new ArrayList<>();
+            List<byte[]> columnarCheckpoints = new ArrayList<>();
+
+            byte[] objectOutput = run(false, seed, objectCheckpoints);
+            byte[] columnarOutput = run(true, seed, columnarCheckpoints);
+
+            assertArrayEquals(objectOutput, columnarOutput, "output of seed " + seed);
+            assertEquals(objectCheckpoints.size(), columnarCheckpoints.size());
+            assertTrue(objectCheckpoints.size() > 10);
+            for (int i = 0; i < objectCheckpoints.size(); i++)
+                assertArrayEquals(objectCheckpoints.get(i), columnarCheckpoints.get(i), "checkpoint " + i + " of seed " + seed);
+        }
+    }
+
+    /**
+     * Runs the script of the given seed on a new home with the given kind of store, capturing a checkpoint every 25 commands and at the end.
+     */
+    private byte[] run(boolean columnar, long seed, List<byte[]> checkpoints) throws IOException {
+        boolean previous = SmartHome.columnarDevices;
+        SmartHome home;
+        try {
+            SmartHome.columnarDevices = columnar;
+            home = new SmartHome();
+        } finally {
+            SmartHome.columnarDevices = previous;
+        }
+
+        LineSource script = script(seed);
+        LineSource capturing = new LineSource() {
+            private int count = 0;
+
+            @Override
+            public String nextLine() {
+                if (++count % 25 == 0)
+                    checkpoints.add(capture(SmartHome.current()));
+                return script.nextLine();
+            }
+
+            @Override
+            public void close() {
+                script.close();
+            }
+        };
+
+        Path output = directory.resolve("output.txt");
+        home.run(capturing, output.toString());
+        checkpoints.add(capture(home));
+
+        return Files.readAllBytes(output);
+    }
+
+    private static byte[] capture(SmartHome home) {
+        try {
+            return Checkpoint.capture(home, "input", 0, 0, 0, 0, 0, "");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return a ScriptGenerator script with renames, removes, re-adds and switch times that tie mixed in at random,
+     * which ends by moving the clock past all the tied switch times
+     */
+    private static LineSource script(long seed) {
+        ScriptGenerator generator = new ScriptGenerator(DEVICES, 2_000, 0.05, 2 * 24 * 60, seed);
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>();
+
+        String line;
+        while ((line = generator.nextLine()) != null) {
+            lines.add(line);
+            if (lines.size() <= DEVICES + 1 || random.nextInt(4) != 0)
+                continue;
+
+            String name = name(random);
+            switch (random.nextInt(6)) {
+                case 0:
+                    lines.add("ChangeName\t" + name + "\t" + name(random));
+                    break;
+                case 1:
+                    lines.add("Remove\t" + name);
+                    break;
+                case 2:
+                    lines.add(String.format(ADD_COMMANDS[random.nextInt(ADD_COMMANDS.length)], name));
+                    break;
+                case 3:
+                    lines.add("Switch\t" + name + (random.nextBoolean() ? "\tOn" : "\tOff"));
+                    break;
+                default:
+                    lines.add("SetSwitchTime\t" + name + "\t" + TIES[random.nextInt(TIES.length)]);
+                    break;
+            }
+        }
+
+        lines.add("ZReport");
+        lines.add("SetTime\t2024-01-01_00:30:00");
+        lines.add("ZReport");
+        lines.add("Nop");
+        lines.add("ZReport");
+
+        return new LineSource() {
+            private int next = 0;
+
+            @Override
+            public String nextLine() {
+                return next < lines.size() ? lines.get(next++) : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * @return the name of a device of the script, or of one of a few extra names that devices are renamed to and added with
+     */
+    private static String name(Random random) {
+        int device = random.nextInt(DEVICES + 4);
+        return device < DEVICES ? ScriptGenerator.deviceName(device) : "Extra " + (device - DEVICES);
+    }
+}
@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that FixedPointFormat writes the same text as String.format("%.02f", value), which it replaced, for random values and for the values that round half up.
+ */
+class FixedPointFormatTest {
+
+    @Test
+    void formatsLikeTheFormatter() {
+        Random random = new Random(12);
+
+        for (int i = 0; i < 200_000; i++) {
+            double value = randomValue(random);
+            assertFormatsLikeTheFormatter(value);
+        }
+    }
+
+    @Test
+    void roundsTiesHalfUp() {
+        for (double value : new double[]{0.005, 0.015, 0.025, 0.125, 1.005, 1.015, 1.115, 2.675, 8.345, 10.005, 1234567.895, 0.0049999999999999, 0.0050000000000001})
+            assertFormatsLikeTheFormatter(value);
+
+        // every value with three decimals up to 100, their ties are written with the shortest decimal that ends with 5
+        for (int thousandths = 0; thousandths <= 100_000; thousandths++)
+            assertFormatsLikeTheFormatter(thousandths / 1000.0);
+    }
+
+    @Test
+    void formatsSignsAndSpecialValues() {
+        for (double value : new double[]{0.0, -0.0, -0.001, -0.004, -0.005, -1.005, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY})
+            assertFormatsLikeTheFormatter(value);
+    }
+
+    @Test
+    void formatsValuesAroundTheFastPathLimit() {
+        double limit = 1e12;
+        for (double value : new double[]{limit, Math.nextDown(limit), Math.nextUp(limit), 999_999_999_999.995, 999_999_999_999.99, 999_999_999_999.994,
+                99_999_999_999.995, 999_999_999.995, 1e11 + 0.005, 1e13, 4.5e15})
+            assertFormatsLikeTheFormatter(value);
+
+        double value = limit;
+        for (int i = 0; i < 2_000; i++) {
+            value = Math.nextDown(value);
+            assertFormatsLikeTheFormatter(value);
+        }
+    }
+
+    /**
+     * @return a value of a random magnitude, a random number of hundredths or thousandths, or a sum like the consumptions of the devices
+     */
+    private static double randomValue(Random random) {
+        double value;
+        switch (random.nextInt(4)) {
+            case 0:
+                value = Math.pow(10, random.nextDouble() * 18 - 6) * random.nextDouble();
+                break;
+            case 1:
+                value = random.nextInt(10_000_000) / 100.0;
+                break;
+            case 2:
+                value = random.nextInt(10_000_000) / 1000.0;
+                break;
+            default:
+                value = 0;
+                for (int i = random.nextInt(20); i >= 0; i--)
+                    value += random.nextInt(5000) / 60.0 * random.nextInt(300) / 1000.0;
+                break;
+        }
+        return random.nextInt(8) == 0 ? -value : value;
+    }
+
+    private static void assertFormatsLikeTheFormatter(double value) {
+        String expected = String.format("%.02f", value);
+        assertEquals(expected, FixedPointFormat.formatTwoDecimals(value), Double.toString(value));
+        assertEquals("x" + expected, FixedPointFormat.appendTwoDecimals(new StringBuilder("x"), value).toString(), Double.toString(value));
+    }
+}
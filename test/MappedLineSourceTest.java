@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a MappedLineSource gives the same lines as a BufferedLineSource, with lines and UTF-8 characters cut by the ends of the chunks.
+ */
+class MappedLineSourceTest {
+    private static final String[] PIECES = {"SetTime", "\t", " ", "  ", "a", "1", "é", "€", "𝄞", "\u000b", "\f", "\u0001", " ",
+            "\n", "\n", "\r\n", "\r\n", "\r", "\n\n", "\r\n\r\n", " \n", "\t\r\n"};
+    private static final int[] CHUNK_SIZES = {1, 2, 3, 5, 7, 8, 9, 13, 64, 1000};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheLinesOfABufferedLineSource() throws IOException {
+        Random random = new Random(19);
+
+        for (int i = 0; i < 200; i++) {
+            Path file = write(randomText(random, random.nextInt(400)));
+            for (int chunkSize : CHUNK_SIZES)
+                assertSameLines(file, chunkSize);
+        }
+    }
+
+    @Test
+    void readsLinesLongerThanTheWindow() throws IOException {
+        StringBuilder text = new StringBuilder("SetInitialTime\t2023-01-01_00:00:00\r\n");
+        for (int i = 0; i < 50_000; i++)
+            text.append(i % 7 == 0 ? "é" : "ab");
+        text.append("\r\n\r\n  last line without a line break ");
+
+        Path file = write(text.toString().getBytes(StandardCharsets.UTF_8));
+        for (int chunkSize : new int[]{1000, 4096, 65536, MappedLineSource.DEFAULT_CHUNK_SIZE})
+            assertSameLines(file, chunkSize);
+    }
+
+    @Test
+    void readsAnEmptyFile() throws IOException {
+        Path file = write(new byte[0]);
+        for (int chunkSize : CHUNK_SIZES)
+            assertSameLines(file, chunkSize);
+    }
+
+    @Test
+    void reportsInvalidUtf8() throws IOException {
+        Path file = write(new byte[]{'N', 'o', 'p', '\n', 'a', (byte) 0xC3, '\n'});
+
+        LineSource lines = new MappedLineSource(file.toString(), true, true, 3);
+        try {
+            assertEquals("Nop", lines.nextLine());
+            assertThrows(UncheckedIOException.class, lines::nextLine);
+        } finally {
+            lines.close();
+        }
+    }
+
+    /**
+     * Compares the lines of both sources for every combination of discarding empty lines and trimming.
+     */
+    private static void assertSameLines(Path file, int chunkSize) throws IOException {
+        for (int options = 0; options < 4; options++) {
+            boolean discardEmptyLines = (options & 1) != 0;
+            boolean trim = (options & 2) != 0;
+
+            List<String> expected = readAll(new BufferedLineSource(file.toString(), discardEmptyLines, trim));
+            List<String> actual = readAll(new MappedLineSource(file.toString(), discardEmptyLines, trim, chunkSize));
+            assertEquals(expected, actual, "chunk size " + chunkSize + ", discardEmptyLines " + discardEmptyLines + ", trim " + trim);
+        }
+    }
+
+    private static List<String> readAll(LineSource source) {
+        List<String> lines = new ArrayList<>();
+        try {
+            String line;
+            while ((line = source.nextLine()) != null)
+                lines.add(line);
+        } finally {
+            source.close();
+        }
+        return lines;
+    }
+
+    /**
+     * @return random text of the given number of pieces, with all kinds of line breaks, blank lines and multi-byte characters, and no line break at the end now and then
+     */
+    private static byte[] randomText(Random random, int pieces) {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        for (int i = 0; i < pieces; i++)
+            text.writeBytes(PIECES[random.nextInt(PIECES.length)].getBytes(StandardCharsets.UTF_8));
+        return text.toByteArray();
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        Path file = Files.createTempFile(directory, "lines", ".txt");
+        Files.write(file, bytes);
+        return file;
+    }
+}
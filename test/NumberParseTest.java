@@ -0,0 +1,156 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the hand-written number parsers of CommandTokens give the same result as Integer.parseInt and Double.parseDouble, which they replaced,
+ * for valid and broken numbers.
+ */
+class NumberParseTest {
+    private static final String CHARACTERS = "0123456789000+-.xXaAfFgeE \t٣९１";
+
+    @Test
+    void parsesIntsLikeIntegerParseInt() {
+        for (String number : new String[]{"0", "-0", "+0", "7", "-7", "+7", "007", "-007", "000000000002147483647", "2147483647", "2147483648",
+                "-2147483648", "-2147483649", "+2147483647", "+2147483648", "4294967296", "99999999999", "-", "+", "", "--1", "+-1", "1-", " 1", "1 ",
+                "1.0", "1e3", "٣٣", "-९", "１２", "0x10", "12a"}) {
+            assertParsesLikeTheJdk(number);
+            assertParsesLikeTheJdk("0x" + number);
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 30_000; i++) {
+            String number = random.nextBoolean() ? randomString(random) : Integer.toString(random.nextInt(), random.nextBoolean() ? 10 : 16);
+            assertParsesLikeTheJdk(number);
+            assertParsesLikeTheJdk("0x" + number);
+        }
+    }
+
+    @Test
+    void parsesHexadecimalAfterThePrefix() {
+        for (String number : new String[]{"0x0", "0xff", "0xFF", "0x7fffffff", "0x80000000", "0xFFFFFFFF", "0x-80000000", "0x-80000001", "0x+1F",
+                "0x", "0xG", "0x00000000ff", "0x٣"})
+            assertParsesLikeTheJdk(number);
+
+        Random random = new Random(16);
+        for (int i = 0; i < 20_000; i++)
+            assertParsesLikeTheJdk("0x" + Integer.toHexString(random.nextInt()));
+    }
+
+    @Test
+    void parsesDoublesLikeDoubleParseDouble() {
+        for (String number : new String[]{"0", "-0", "+0", "0.0", "-0.0", ".5", "5.", ".", "-.", "-", "+", "", "2.5", "-10", "007.50", "1.005", "2.675",
+                "0.1", "0.2", "0.3", "123456789012345", "1234567890123456", "999999999999999", "9999999999999999", "0.123456789012345",
+                "0.1234567890123456", "12345678.9012345", "9007199254740993", "1.00000000000001", "000000000000000000001.5", "1e3", "1E-3",
+                "Infinity", "NaN", "0x1p3", "1.5d", "1.5f", " 1.5", "1.5 ", "1..5", "1.5.", "٣.5", "１"})
+            assertParsesLikeTheJdk(number);
+
+        Random random = new Random(15);
+        for (int i = 0; i < 30_000; i++) {
+            String number;
+            switch (random.nextInt(3)) {
+                case 0:
+                    number = randomString(random);
+                    break;
+                case 1:
+                    number = randomDecimal(random);
+                    break;
+                default:
+                    number = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 10));
+                    break;
+            }
+            assertParsesLikeTheJdk(number);
+        }
+    }
+
+    /**
+     * @return a decimal number with up to 18 digits, a decimal point somewhere or nowhere, leading zeros and a sign now and then
+     */
+    private static String randomDecimal(Random random) {
+        StringBuilder number = new StringBuilder();
+        if (random.nextInt(4) == 0)
+            number.append(random.nextBoolean() ? '-' : '+');
+
+        int digits = 1 + random.nextInt(18);
+        int point = random.nextInt(digits + 2);
+        for (int i = 0; i < digits; i++) {
+            if (i == point)
+                number.append('.');
+            number.append((char) ('0' + (i == 0 && random.nextInt(3) != 0 ? 0 : random.nextInt(10))));
+        }
+        return number.toString();
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder string = new StringBuilder();
+        for (int i = random.nextInt(14); i > 0; i--)
+            string.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        return string.toString();
+    }
+
+    /**
+     * Compares the results, or whether a NumberFormatException is thrown, for the given characters as a string and as a StringBuilder.
+     */
+    private static void assertParsesLikeTheJdk(String number) {
+        assertEquals(jdkInt(number), tokensInt(number), number);
+        assertEquals(jdkInt(number), tokensInt(new StringBuilder(number)), number);
+        assertEquals(jdkDouble(number), tokensDouble(number), number);
+        assertEquals(jdkDouble(number), tokensDouble(new StringBuilder(number)), number);
+
+        if (number.startsWith("0x"))
+            assertEquals(jdkHex(number), tokensHex(number), number);
+    }
+
+    private static Integer tokensInt(CharSequence number) {
+        try {
+            return CommandTokens.parseInt(number);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer jdkInt(String number) {
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer tokensHex(String number) {
+        try {
+            return CommandTokens.parseInt(number, 2, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer jdkHex(String number) {
+        try {
+            return Integer.parseInt(number.substring(2), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the bits of the parsed double, so that -0.0 and 0.0 are told apart, null if the number is not valid
+     */
+    private static Long tokensDouble(CharSequence number) {
+        try {
+            return Double.doubleToRawLongBits(CommandTokens.parseDouble(number));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long jdkDouble(String number) {
+        try {
+            return Double.doubleToRawLongBits(Double.parseDouble(number));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
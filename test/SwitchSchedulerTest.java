@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the SwitchScheduler keeps the devices in the order the device list used to have,
+ * when it was sorted by switch time with a stable sort after every change, for random adds, removals, switch time changes and due switches.
+ */
+class SwitchSchedulerTest {
+
+    @Test
+    void keepsTheOrderOfTheStableSort() {
+        for (long seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            SwitchScheduler scheduler = new SwitchScheduler();
+            SortedList list = new SortedList();
+            int added = 0;
+
+            for (int step = 0; step < 500; step++) {
+                int operation = random.nextInt(10);
+
+                if (operation < 2 || list.devices.isEmpty()) {
+                    SmartDevice smartDevice = new SmartPlug("Plug " + added++);
+                    scheduler.add(smartDevice);
+                    list.add(smartDevice);
+                } else if (operation < 3) {
+                    SmartDevice smartDevice = list.devices.get(random.nextInt(list.devices.size()));
+                    scheduler.remove(smartDevice);
+                    list.remove(smartDevice);
+                } else if (operation < 8) {
+                    // few different times, so that many devices switch at the same time
+                    SmartDevice smartDevice = list.devices.get(random.nextInt(list.devices.size()));
+                    long switchTime = random.nextInt(6) == 0 ? Time.NONE : random.nextInt(8);
+                    scheduler.setSwitchTime(smartDevice, switchTime);
+                    list.setSwitchTime(smartDevice, switchTime);
+                } else {
+                    long currentTime = random.nextInt(8);
+                    assertEquals(list.pollDue(currentTime), scheduler.pollDue(currentTime), "seed " + seed + ", step " + step);
+                }
+
+                assertEquals(list.devices, order(scheduler), "seed " + seed + ", step " + step);
+                assertEquals(list.devices.size(), scheduler.size());
+                assertEquals(list.pendingSwitches(), scheduler.pendingSwitches());
+                if (!list.devices.isEmpty())
+                    assertSame(list.devices.get(0), scheduler.first());
+            }
+        }
+    }
+
+    private static List<SmartDevice> order(SwitchScheduler scheduler) {
+        List<SmartDevice> devices = new ArrayList<>();
+        for (SmartDevice smartDevice : scheduler)
+            devices.add(smartDevice);
+        return devices;
+    }
+
+    /**
+     * The device list as it used to be kept: the switch times are kept apart from the devices, which the scheduler changes,
+     * and the list is sorted by switch time alone with the stable ArrayList.sort after every change.
+     */
+    private static class SortedList {
+        private final List<SmartDevice> devices = new ArrayList<>();
+        private final Map<SmartDevice, Long> switchTimes = new IdentityHashMap<>();
+
+        void add(SmartDevice smartDevice) {
+            devices.add(smartDevice);
+            switchTimes.put(smartDevice, Time.NONE);
+            sort();
+        }
+
+        void remove(SmartDevice smartDevice) {
+            devices.remove(smartDevice);
+            switchTimes.remove(smartDevice);
+        }
+
+        void setSwitchTime(SmartDevice smartDevice, long switchTime) {
+            switchTimes.put(smartDevice, switchTime);
+            sort();
+        }
+
+        List<SmartDevice> pollDue(long currentTime) {
+            List<SmartDevice> dueDevices = new ArrayList<>();
+            for (SmartDevice smartDevice : devices) {
+                if (switchTimes.get(smartDevice) <= currentTime) {
+                    switchTimes.put(smartDevice, Time.NONE);
+                    dueDevices.add(smartDevice);
+                }
+            }
+            sort();
+            return dueDevices;
+        }
+
+        int pendingSwitches() {
+            int count = 0;
+            for (long switchTime : switchTimes.values()) {
+                if (switchTime != Time.NONE)
+                    count++;
+            }
+            return count;
+        }
+
+        private void sort() {
+            devices.sort(Comparator.comparingLong(switchTimes::get));
+        }
+    }
+}
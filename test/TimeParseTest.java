@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the hand-written parser of Time gives the same result as parsing with the formatter it replaced, for valid and broken time strings.
+ */
+class TimeParseTest {
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH:mm:ss");
+    private static final String MUTATIONS = "0123456789-_: aX+";
+
+    @Test
+    void parsesLikeTheFormatter() {
+        Random random = new Random(8);
+
+        for (int i = 0; i < 100_000; i++) {
+            String time = randomTime(random);
+            assertEquals(parseWithFormatter(time), parse(time), time);
+        }
+    }
+
+    @Test
+    void clampsTheDayAndRollsOverMidnight() {
+        for (String time : new String[]{"2023-02-31_10:00:00", "2024-02-30_00:00:00", "2023-04-31_23:59:59", "2023-12-31_24:00:00",
+                "2023-01-01_24:00:01", "0000-01-01_00:00:00", "2023-13-01_00:00:00", "2023-00-10_00:00:00", "12023-01-01_00:00:00"})
+            assertEquals(parseWithFormatter(time), parse(time), time);
+    }
+
+    /**
+     * @return a time string with fields around their valid ranges, with a character replaced, inserted or removed now and then
+     */
+    private static String randomTime(Random random) {
+        StringBuilder time = new StringBuilder(String.format("%04d-%02d-%02d_%02d:%02d:%02d",
+                random.nextInt(3000), random.nextInt(14), random.nextInt(33), random.nextInt(26), random.nextInt(61), random.nextInt(61)));
+
+        switch (random.nextInt(8)) {
+            case 0:
+                time.setCharAt(random.nextInt(time.length()), MUTATIONS.charAt(random.nextInt(MUTATIONS.length())));
+                break;
+            case 1:
+                time.insert(random.nextInt(time.length() + 1), MUTATIONS.charAt(random.nextInt(MUTATIONS.length())));
+                break;
+            case 2:
+                time.deleteCharAt(random.nextInt(time.length()));
+                break;
+            default:
+                break;
+        }
+
+        return time.toString();
+    }
+
+    private static Long parse(String time) {
+        try {
+            return Time.parseTime(time);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Long parseWithFormatter(String time) {
+        try {
+            return LocalDateTime.parse(time, formatter).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}